@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Отдельная in-memory база H2 со схемой приложения, заполненная синтетическими данными.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+    private static final int INSERT_BATCH_SIZE = 5_000;
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    private BenchmarkDatabase(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public static BenchmarkDatabase create(int films, int users, int likesPerFilm) {
+        return create(films, users, likesPerFilm, 0);
+    }
+
+    public static BenchmarkDatabase create(int films, int users, int likesPerFilm, int friendsPerUser) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:bench" + DATABASE_SEQUENCE.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("password");
+
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+
+        BenchmarkDatabase database = new BenchmarkDatabase(dataSource);
+        database.seed(films, users, likesPerFilm, friendsPerUser);
+        return database;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public String jdbcUrl() {
+        return dataSource.getJdbcUrl();
+    }
+
+    private void seed(int films, int users, int likesPerFilm, int friendsPerUser) {
+        List<Object[]> rows = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int id = 1; id <= users; id++) {
+            rows.add(new Object[]{id, "user" + id + "@example.com", "user" + id, "User " + id,
+                    Date.valueOf(LocalDate.of(1980, 1, 1).plusDays(id % 10_000))});
+            flushIfFull("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+        }
+        flush("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+
+        for (int id = 1; id <= films; id++) {
+            rows.add(new Object[]{id, "Film " + id, "Description " + id,
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(id % 25_000)), 60 + id % 120, 1 + id % 5});
+            flushIfFull("INSERT INTO films (id, name, description, release_date, duration, mpa_id) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        }
+        flush("INSERT INTO films (id, name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+        for (int id = 1; id <= films; id++) {
+            rows.add(new Object[]{id, 1 + id % 6});
+            rows.add(new Object[]{id, 1 + (id + 3) % 6});
+            flushIfFull("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", rows);
+        }
+        flush("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", rows);
+
+        for (int id = 1; id <= films; id++) {
+            // Популярность убывает с ростом id, у первых фильмов лайков больше всего
+            int likes = Math.min(users, Math.max(0, likesPerFilm * 2 - id * likesPerFilm * 2 / films));
+            for (int i = 0; i < likes; i++) {
+                rows.add(new Object[]{id, 1 + (id + i) % users});
+                flushIfFull("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", rows);
+            }
+        }
+        flush("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", rows);
+        // Счётчик ведёт FilmDbStorage, а здесь лайки вставляются мимо него
+        jdbcTemplate.update("UPDATE films f SET likes_count = " +
+                "(SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)");
+
+        int friends = Math.min(friendsPerUser, users - 1);
+        for (int id = 1; id <= users; id++) {
+            // Друзья идут подряд за пользователем, поэтому у соседних пользователей много общих друзей
+            for (int offset = 1; offset <= friends; offset++) {
+                rows.add(new Object[]{id, 1 + (id - 1 + offset) % users});
+                flushIfFull("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", rows);
+            }
+        }
+        flush("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", rows);
+
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH " + (films + 1));
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (users + 1));
+    }
+
+    private void flushIfFull(String sql, List<Object[]> rows) {
+        if (rows.size() >= INSERT_BATCH_SIZE) {
+            flush(sql, rows);
+        }
+    }
+
+    private void flush(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья: двойной join по {@code friendships} в {@link UserDbStorage#getCommonFriends}
+ * против пересечения массивов в {@link FriendshipGraph} с загрузкой найденных пользователей одним запросом.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendsBenchmark {
+    @Param({"10000"})
+    private int users;
+
+    @Param({"500"})
+    private int friendsPerUser;
+
+    private BenchmarkDatabase database;
+    private UserDbStorage userStorage;
+    private FriendshipGraph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create(0, users, 0, friendsPerUser);
+        userStorage = new UserDbStorage(database.jdbcTemplate(), new IdBatchLoader(database.jdbcTemplate()));
+        graph = new FriendshipGraph();
+        graph.load(userStorage.getFriendIdsByUser());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> storageGetCommonFriends() {
+        int userId = randomUser();
+        return userStorage.getCommonFriends(userId, userId + 1);
+    }
+
+    @Benchmark
+    public List<User> graphCommonFriends() {
+        int userId = randomUser();
+        return userStorage.getUsersByIds(Arrays.stream(graph.commonFriends(userId, userId + 1)).boxed().toList());
+    }
+
+    @Benchmark
+    public int[] graphCommonFriendIds() {
+        int userId = randomUser();
+        return graph.commonFriends(userId, userId + 1);
+    }
+
+    // H2 повторно отдаёт прошлый результат запроса с теми же параметрами, поэтому пара пользователей меняется
+    private int randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users - 1);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочное сравнение потоков Tomcat и виртуальных потоков: приложение целиком, запросы по HTTP
+ * из {@code @Threads} клиентских потоков, больше чем потоков Tomcat по умолчанию (200).
+ * Режим SampleTime даёт и пропускную способность (число замеров), и хвосты p99/p999.
+ * Кэш фильмов выключен, чтобы каждый запрос ходил в базу.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="HttpLoadBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(256)
+@Fork(1)
+public class HttpLoadBenchmark {
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"10000"})
+    private int films;
+
+    @Param({"10000"})
+    private int users;
+
+    private BenchmarkDatabase database;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create(films, users, 20, 20);
+        // Аргументы командной строки, а не properties(): те ниже по приоритету, чем application.properties
+        context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + database.jdbcUrl(),
+                "--spring.sql.init.mode=never",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--filmorate.film-cache.max-size=0",
+                "--filmorate.sql-profiler.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        database.close();
+    }
+
+    @Benchmark
+    public int getFilm() throws IOException, InterruptedException {
+        return get("/films/" + (1 + ThreadLocalRandom.current().nextInt(films)));
+    }
+
+    @Benchmark
+    public int getFriends() throws IOException, InterruptedException {
+        return get("/users/" + (1 + ThreadLocalRandom.current().nextInt(users)) + "/friends");
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сравнивает загрузку всех фильмов с жанрами: прежний запрос с IN-списком на все фильмы,
+ * порционную загрузку через {@link IdBatchLoader} и {@link FilmDbStorage#getAllFilms()},
+ * который читает дочерние таблицы целиком. Лайки, как и в приложении, во всех вариантах берутся
+ * из счётчика {@code films.likes_count}, а не из {@code film_likes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HydrationBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int films;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private IdBatchLoader batchLoader;
+    private FilmDbStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create(films, 1_000, 5);
+        jdbcTemplate = database.jdbcTemplate();
+        batchLoader = new IdBatchLoader(jdbcTemplate);
+        filmStorage = new FilmDbStorage(jdbcTemplate, batchLoader);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Collection<Film> storageGetAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public List<Film> idBatchLoader() {
+        List<Film> result = loadFilms();
+        Map<Integer, Film> filmMap = result.stream().collect(Collectors.toMap(Film::getId, film -> film));
+
+        batchLoader.load("SELECT fg.film_id, g.id, g.name FROM UNNEST(?) AS ids(id) JOIN film_genres fg " +
+                "ON fg.film_id = ids.id JOIN genres g ON fg.genre_id = g.id", filmMap.keySet(), rs -> {
+            filmMap.get(rs.getInt("film_id")).getGenres()
+                    .add(Genre.builder().id(rs.getInt("id")).name(rs.getString("name")).build());
+        });
+        return result;
+    }
+
+    @Benchmark
+    public List<Film> legacyInClause() {
+        List<Film> result = loadFilms();
+        Map<Integer, Film> filmMap = result.stream().collect(Collectors.toMap(Film::getId, film -> film));
+        Object[] filmIds = filmMap.keySet().toArray();
+        String inClause = String.join(",", Collections.nCopies(filmIds.length, "?"));
+
+        jdbcTemplate.query(String.format("SELECT fg.film_id, g.id, g.name FROM film_genres fg " +
+                "JOIN genres g ON fg.genre_id = g.id WHERE fg.film_id IN (%s)", inClause), filmIds, rs -> {
+            filmMap.get(rs.getInt("film_id")).getGenres()
+                    .add(Genre.builder().id(rs.getInt("id")).name(rs.getString("name")).build());
+        });
+        return result;
+    }
+
+    private List<Film> loadFilms() {
+        return jdbcTemplate.query("SELECT f.*, m.name as mpa_name FROM films f JOIN mpa_ratings m ON f.mpa_id = m.id",
+                HydrationBenchmark::mapRowToFilm);
+    }
+
+    private static Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
+        return Film.builder()
+                .id(rs.getInt("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(rs.getDate("release_date").toLocalDate())
+                .duration(rs.getInt("duration"))
+                .mpa(MpaRating.builder().id(rs.getInt("mpa_id")).name(rs.getString("mpa_name")).build())
+                .genres(new HashSet<>())
+                .likesCount(rs.getInt("likes_count"))
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Топ популярных фильмов: сортировка всех фильмов в {@link InMemoryFilmStorage} против
+ * чтения из {@link PopularityLeaderboard}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryPopularityBenchmark {
+    @Param({"10000"})
+    private int films;
+
+    @Param({"20"})
+    private int likesPerFilm;
+
+    private InMemoryFilmStorage filmStorage;
+    private PopularityLeaderboard leaderboard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < films; i++) {
+            Film film = filmStorage.addFilm(Film.builder()
+                    .name("Film " + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .mpa(MpaRating.builder().id(1).build())
+                    .build());
+            int likes = (i * 7919) % (likesPerFilm * 2 + 1);
+            for (int userId = 1; userId <= likes; userId++) {
+                filmStorage.addLike(film.getId(), userId);
+            }
+        }
+        leaderboard = new PopularityLeaderboard();
+        leaderboard.load(filmStorage.getLikesCounts());
+    }
+
+    @Benchmark
+    public List<Film> inMemoryStorageGetPopularFilms() {
+        return filmStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Integer> leaderboardTop() {
+        return leaderboard.top(10);
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайки одного фильма: {@link HashSet} упакованных {@link Integer} против {@link LikeSet} на Roaring.
+ * {@link LikeSet} меряется в двух видах: как в приложении, где лайки добавляются по одному, и после
+ * {@link LikeSet#compact()}, которое приложение не вызывает.
+ * Занимаемая память (JOL, вместе со всеми вложенными объектами) - счётчики {@link #footprint}, байты на
+ * построение множества видны с {@code -prof gc} в {@code gc.alloc.rate.norm}.
+ * {@code users} - диапазон id: при 100 000 лайков из 1 000 000 пользователей заполнено 10% битов,
+ * при 100 000 лайков из 100 000 id идут подряд и Roaring хранит их одним интервалом.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Без самоприсоединения JOL не получает Instrumentation и считает размеры по модели раскладки
+@Fork(value = 1, jvmArgsAppend = "-Djdk.attach.allowAttachSelf")
+public class LikesMemoryBenchmark {
+    @Param({"1000", "100000"})
+    private int likes;
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    private int[] userIds;
+    private Set<Integer> hashSet;
+    private LikeSet likeSet;
+    private LikeSet compactLikeSet;
+    private long hashSetBytes;
+    private long likeSetBytes;
+    private long compactLikeSetBytes;
+
+    /**
+     * Размеры множеств в байтах, попадают в результаты JMH вторичными метриками.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long hashSetBytes;
+        public long likeSetBytes;
+        public long compactLikeSetBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Set<Integer> distinct = new HashSet<>();
+        while (distinct.size() < likes) {
+            distinct.add(1 + random.nextInt(users));
+        }
+        userIds = distinct.stream().mapToInt(Integer::intValue).toArray();
+        hashSet = buildHashSet();
+        likeSet = buildLikeSet();
+        compactLikeSet = buildCompactLikeSet();
+        hashSetBytes = GraphLayout.parseInstance(hashSet).totalSize();
+        likeSetBytes = GraphLayout.parseInstance(likeSet).totalSize();
+        compactLikeSetBytes = GraphLayout.parseInstance(compactLikeSet).totalSize();
+    }
+
+    // Время здесь не важно. Счётчики EVENTS суммируются по итерациям, поэтому итерация одна
+    @Benchmark
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1, time = 1)
+    public long footprint(Footprint footprint) {
+        footprint.hashSetBytes = hashSetBytes;
+        footprint.likeSetBytes = likeSetBytes;
+        footprint.compactLikeSetBytes = compactLikeSetBytes;
+        return likeSetBytes;
+    }
+
+    @Benchmark
+    public Set<Integer> buildHashSet() {
+        Set<Integer> set = new HashSet<>();
+        for (int userId : userIds) {
+            set.add(userId);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public LikeSet buildLikeSet() {
+        LikeSet set = new LikeSet();
+        for (int userId : userIds) {
+            set.add(userId);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public LikeSet buildCompactLikeSet() {
+        LikeSet set = buildLikeSet();
+        set.compact();
+        return set;
+    }
+
+    @Benchmark
+    public int containsHashSet() {
+        return countContained(hashSet);
+    }
+
+    @Benchmark
+    public int containsLikeSet() {
+        return countContained(likeSet);
+    }
+
+    @Benchmark
+    public int containsCompactLikeSet() {
+        return countContained(compactLikeSet);
+    }
+
+    private int countContained(Set<Integer> set) {
+        int found = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (set.contains(userIds[i % userIds.length] + (i & 1))) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сериализация ответов в JSON тем же {@link ObjectMapper}, что собирает Spring Boot.
+ * {@code friends} задаёт размер коллекции внутри пользователя. Id лайкнувших в фильме нет, только
+ * {@code likesCount}, поэтому от числа лайков размер фильма не зависит.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"100"})
+    private int friends;
+
+    private ObjectMapper objectMapper;
+    private Film film;
+    private List<Film> page;
+    private User user;
+    private String filmJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().filters(FieldSet.serializeAll()).build();
+        film = film(1);
+        page = IntStream.rangeClosed(1, 100).mapToObj(this::film).toList();
+
+        Map<Integer, FriendshipStatus> friendMap = new HashMap<>();
+        for (int i = 1; i <= friends; i++) {
+            friendMap.put(i, i % 2 == 0 ? FriendshipStatus.CONFIRMED : FriendshipStatus.UNCONFIRMED);
+        }
+        user = User.builder()
+                .id(1)
+                .email("user@example.com")
+                .login("user")
+                .name("User")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .friends(friendMap)
+                .build();
+        filmJson = objectMapper.writeValueAsString(film);
+    }
+
+    @Benchmark
+    public byte[] serializeFilm() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public byte[] serializeFilmPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public Film deserializeFilm() throws JsonProcessingException {
+        return objectMapper.readValue(filmJson, Film.class);
+    }
+
+    private Film film(int id) {
+        return Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .description("Description of film " + id)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(MpaRating.builder().id(1).name("G").build())
+                .genres(Set.of(Genre.builder().id(1).name("Комедия").build(),
+                        Genre.builder().id(2).name("Драма").build()))
+                .likesCount(100)
+                .build();
+    }
+}
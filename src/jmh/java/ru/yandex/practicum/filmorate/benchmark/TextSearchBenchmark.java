@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmTextIndex;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск в {@link FilmTextIndex} по синтетическому корпусу: слова из словаря в 65 536 слов выбираются
+ * по закону Ципфа, в названии 3 слова, в описании 25. {@code query} - ранг слова в словаре:
+ * {@code rare} (ранг 20 000), {@code medium} (300), {@code common} (5, есть примерно в каждом третьем фильме),
+ * пара слов {@code medium+common}, первые три буквы слова ранга 300 ({@code prefix}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class TextSearchBenchmark {
+    private static final String[] SYLLABLES =
+            {"ка", "ро", "ми", "то", "ле", "на", "ви", "ус", "да", "зо", "пе", "гу", "ли", "со", "бе", "ты"};
+    private static final int VOCABULARY = SYLLABLES.length * SYLLABLES.length * SYLLABLES.length * SYLLABLES.length;
+
+    @Param({"1000000"})
+    private int films;
+
+    @Param({"rare", "medium", "common", "medium+common", "prefix"})
+    private String query;
+
+    private FilmTextIndex index;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        double[] cumulative = new double[VOCABULARY];
+        double sum = 0;
+        for (int rank = 0; rank < VOCABULARY; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        index = new FilmTextIndex(new InMemoryFilmStorage());
+        for (int id = 1; id <= films; id++) {
+            index.put(id, Film.builder()
+                    .name(words(random, cumulative, 3))
+                    .description(words(random, cumulative, 25))
+                    .build());
+        }
+        text = switch (query) {
+            case "rare" -> word(20_000);
+            case "medium" -> word(300);
+            case "common" -> word(5);
+            case "medium+common" -> word(300) + " " + word(5);
+            default -> word(300).substring(0, 3);
+        };
+        System.out.printf("%nфильмов: %d, слов в словаре индекса: %d, найдено по «%s»: %d%n",
+                index.size(), index.terms(), text, index.matching(text).getCardinality());
+    }
+
+    @Benchmark
+    public List<Integer> mostRelevant() {
+        return index.mostRelevant(text, null, 10);
+    }
+
+    private static String words(SplittableRandom random, double[] cumulative, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            double point = random.nextDouble() * cumulative[cumulative.length - 1];
+            int rank = Arrays.binarySearch(cumulative, point);
+            words.append(i == 0 ? "" : " ").append(word(rank < 0 ? -rank - 1 : rank));
+        }
+        return words.toString();
+    }
+
+    private static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            word.append(SYLLABLES[rank % SYLLABLES.length]);
+            rank /= SYLLABLES.length;
+        }
+        return word.toString();
+    }
+}
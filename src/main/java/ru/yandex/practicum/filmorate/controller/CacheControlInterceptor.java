@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Заголовок Cache-Control для GET-обработчиков: {@code filmorate.http.cache-control.<Контроллер>.<метод>},
+ * а без него - {@code filmorate.http.cache-control}. По умолчанию {@code no-cache}: клиент хранит ответ,
+ * но перед использованием сверяет ETag.
+ */
+@Component
+public class CacheControlInterceptor implements HandlerInterceptor {
+    private static final String CACHE_CONTROL_PROPERTY = "filmorate.http.cache-control";
+
+    private final Environment environment;
+    private final String defaultCacheControl;
+    private final Map<Method, String> cacheControlByHandler = new ConcurrentHashMap<>();
+
+    public CacheControlInterceptor(Environment environment) {
+        this.environment = environment;
+        this.defaultCacheControl = environment.getProperty(CACHE_CONTROL_PROPERTY, "no-cache");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if ("GET".equals(request.getMethod()) && handler instanceof HandlerMethod handlerMethod) {
+            String cacheControl = cacheControlByHandler.computeIfAbsent(handlerMethod.getMethod(), method ->
+                    environment.getProperty(CACHE_CONTROL_PROPERTY + "." + method.getDeclaringClass().getSimpleName()
+                            + "." + method.getName(), defaultCacheControl));
+            if (!cacheControl.isEmpty()) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            }
+        }
+        return true;
+    }
+}
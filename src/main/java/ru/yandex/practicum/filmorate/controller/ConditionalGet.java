@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+
+/**
+ * Условный GET по ETag из {@link EntityVersions}. Без ETag (null) ответ отдаётся целиком и без заголовка.
+ */
+final class ConditionalGet {
+    private ConditionalGet() {
+    }
+
+    static boolean notModified(WebRequest request, String eTag) {
+        return eTag != null && request.checkNotModified(eTag);
+    }
+
+    /**
+     * То же для ресурса, которого может не быть: ETag строится из счётчика версий и для несуществующего id
+     * совпал бы с нулевой версией. Поэтому у условного запроса сначала проверяется существование
+     * ({@code existenceCheck} бросает NotFoundException). Безусловному запросу проверку делает сервис.
+     */
+    static boolean notModified(WebRequest request, String eTag, Runnable existenceCheck) {
+        if (eTag == null) {
+            return false;
+        }
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            existenceCheck.run();
+        }
+        return request.checkNotModified(eTag);
+    }
+}
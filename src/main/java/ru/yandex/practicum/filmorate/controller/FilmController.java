@@ -1,12 +1,33 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikePage;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.ExportService;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeEventLog;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.*;
 
 @RestController
@@ -15,6 +36,11 @@ import java.util.*;
 @RequiredArgsConstructor
 public class FilmController {
     private final FilmService filmService;
+    private final FilmImportService filmImportService;
+    private final LikeEventLog likeEventLog;
+    private final EntityVersions versions;
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public Film createFilm(@Valid @RequestBody Film film) {
@@ -24,21 +50,97 @@ public class FilmController {
         return created;
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkImportResult importFilms(InputStream body) throws IOException {
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(body)) {
+            return filmImportService.importFilms(films);
+        }
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         return filmService.updateFilm(film);
     }
 
     @GetMapping
-    public Collection<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public MappingJacksonValue getAllFilms(@RequestParam(required = false) String fields,
+                                           @RequestParam(required = false) Integer after,
+                                           @RequestParam(required = false) Integer limit, WebRequest request) {
+        FieldSet fieldSet = FieldSet.parse(fields, Film.FIELDS);
+        if (after != null || limit != null) {
+            // Курсор без limit сервис отклоняет с 400, а не отдаёт полным списком
+            return fieldSet.wrap(filmService.getFilmsPage(after, limit));
+        }
+        if (ConditionalGet.notModified(request, versions.filmsTag("all-" + fieldSet))) {
+            return null;
+        }
+        return fieldSet.wrap(filmService.getAllFilms(fieldSet));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                filmService.streamAllFilms(chunk -> writeChunk(generator, chunk));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportService.Format exportFormat = ExportService.Format.parse(format);
+        StreamingResponseBody body = outputStream -> exportService.exportFilms(exportFormat, outputStream);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(exportFormat.getMediaType());
+        if (exportFormat == ExportService.Format.CSV) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"films.csv\"");
+        }
+        return response.body(body);
+    }
+
+    private void writeChunk(JsonGenerator generator, List<Film> chunk) {
+        try {
+            for (Film film : chunk) {
+                generator.writeObject(film);
+            }
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping("/search")
+    public MappingJacksonValue searchFilms(@RequestParam(name = "q", required = false) String query,
+                                           @RequestParam(name = "genre", required = false) List<Integer> genreIds,
+                                           @RequestParam(name = "mpa", required = false) List<Integer> mpaIds,
+                                           @RequestParam(required = false) Integer yearFrom,
+                                           @RequestParam(required = false) Integer yearTo,
+                                           @RequestParam(required = false) String sort,
+                                           @RequestParam(defaultValue = "10") Integer count,
+                                           @RequestParam(required = false) String fields) {
+        FieldSet fieldSet = FieldSet.parse(fields, Film.FIELDS);
+        return fieldSet.wrap(filmService.searchFilms(query, genreIds, mpaIds, yearFrom, yearTo, sort, count,
+                fieldSet));
     }
 
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable Integer id) {
+    public Film getFilmById(@PathVariable Integer id, WebRequest request) {
+        if (ConditionalGet.notModified(request, versions.filmTag(id), () -> filmService.checkFilmExists(id))) {
+            return null;
+        }
         return filmService.getFilm(id);
     }
 
+    @GetMapping("/{id}/likes")
+    public LikePage getLikes(@PathVariable Integer id, @RequestParam(required = false) Integer after,
+                             @RequestParam(defaultValue = "100") Integer limit) {
+        return filmService.getLikes(id, after, limit);
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable Integer id, @PathVariable Integer userId) {
         filmService.addLike(id, userId);
@@ -49,8 +151,34 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    @PutMapping("/{id}/like/{userId}/async")
+    public ResponseEntity<LikeOperation> addLikeAsync(@PathVariable Integer id, @PathVariable Integer userId) {
+        return accepted(likeEventLog.submit(id, userId, true));
+    }
+
+    @DeleteMapping("/{id}/like/{userId}/async")
+    public ResponseEntity<LikeOperation> removeLikeAsync(@PathVariable Integer id, @PathVariable Integer userId) {
+        return accepted(likeEventLog.submit(id, userId, false));
+    }
+
+    @GetMapping("/like-operations/{operationId}")
+    public LikeOperation getLikeOperation(@PathVariable Long operationId) {
+        return likeEventLog.getOperation(operationId);
+    }
+
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(required = false) Integer count) {
-        return filmService.getPopularFilms(count);
+    public MappingJacksonValue getPopularFilms(@RequestParam(required = false) Integer count,
+                                              @RequestParam(required = false) String fields, WebRequest request) {
+        FieldSet fieldSet = FieldSet.parse(fields, Film.FIELDS);
+        if (ConditionalGet.notModified(request, versions.filmsTag("popular-" + count + "-" + fieldSet))) {
+            return null;
+        }
+        return fieldSet.wrap(filmService.getPopularFilms(count, fieldSet));
+    }
+
+    private ResponseEntity<LikeOperation> accepted(LikeOperation operation) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/films/like-operations/" + operation.getId()))
+                .body(operation);
     }
-}
\ No newline at end of file
+}
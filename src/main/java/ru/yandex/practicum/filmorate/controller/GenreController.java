@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
 import java.util.List;
@@ -12,14 +14,23 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreController {
     private final GenreService genreService;
+    private final EntityVersions versions;
 
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public List<Genre> getAllGenres(WebRequest request) {
+        if (ConditionalGet.notModified(request, versions.genresTag("all"))) {
+            return null;
+        }
         return genreService.getAllGenres();
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable Integer id) {
-        return genreService.getGenreById(id);
+    public Genre getGenreById(@PathVariable Integer id, WebRequest request) {
+        // Справочник в памяти, поэтому неизвестный id отвечает 404 раньше проверки ETag
+        Genre genre = genreService.getGenreById(id);
+        if (ConditionalGet.notModified(request, versions.genresTag(String.valueOf(id)))) {
+            return null;
+        }
+        return genre;
     }
 }
\ No newline at end of file
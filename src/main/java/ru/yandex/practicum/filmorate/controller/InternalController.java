@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.metrics.HttpMetrics;
+import ru.yandex.practicum.filmorate.metrics.SqlProfiler;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.SqlProfile;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+@RestController
+@RequestMapping("/internal")
+@RequiredArgsConstructor
+public class InternalController {
+    private final FilmService filmService;
+    private final SqlProfiler sqlProfiler;
+    private final HttpMetrics httpMetrics;
+
+    @GetMapping("/cache/films")
+    public CacheStats getFilmCacheStats() {
+        return filmService.getCacheStats();
+    }
+
+    @GetMapping("/sql")
+    public SqlProfile getSqlProfile() {
+        return sqlProfiler.getProfile();
+    }
+
+    @DeleteMapping("/sql")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void resetSqlProfile() {
+        sqlProfiler.reset();
+    }
+
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String getMetrics() {
+        return httpMetrics.scrape();
+    }
+}
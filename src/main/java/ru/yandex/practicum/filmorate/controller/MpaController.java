@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
 import java.util.List;
@@ -12,14 +14,23 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MpaController {
     private final MpaService mpaService;
+    private final EntityVersions versions;
 
     @GetMapping
-    public List<MpaRating> getAllMpaRatings() {
+    public List<MpaRating> getAllMpaRatings(WebRequest request) {
+        if (ConditionalGet.notModified(request, versions.mpaTag("all"))) {
+            return null;
+        }
         return mpaService.getAllMpaRatings();
     }
 
     @GetMapping("/{id}")
-    public MpaRating getMpaRatingById(@PathVariable Integer id) {
-        return mpaService.getMpaRatingById(id);
+    public MpaRating getMpaRatingById(@PathVariable Integer id, WebRequest request) {
+        // Справочник в памяти, поэтому неизвестный id отвечает 404 раньше проверки ETag
+        MpaRating mpaRating = mpaService.getMpaRatingById(id);
+        if (ConditionalGet.notModified(request, versions.mpaTag(String.valueOf(id)))) {
+            return null;
+        }
+        return mpaRating;
     }
 }
\ No newline at end of file
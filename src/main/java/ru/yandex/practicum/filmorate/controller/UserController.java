@@ -3,9 +3,19 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.FieldSet;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.ExportService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.*;
@@ -16,6 +26,9 @@ import java.util.*;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final RecommendationService recommendationService;
+    private final EntityVersions versions;
+    private final ExportService exportService;
 
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
@@ -28,12 +41,30 @@ public class UserController {
     }
 
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.getAllUsers();
+    public MappingJacksonValue getAllUsers(@RequestParam(required = false) String fields, WebRequest request) {
+        FieldSet fieldSet = FieldSet.parse(fields, User.FIELDS);
+        if (ConditionalGet.notModified(request, versions.usersTag("all-" + fieldSet))) {
+            return null;
+        }
+        return fieldSet.wrap(userService.getAllUsers(fieldSet));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportService.Format exportFormat = ExportService.Format.parse(format);
+        StreamingResponseBody body = outputStream -> exportService.exportUsers(exportFormat, outputStream);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(exportFormat.getMediaType());
+        if (exportFormat == ExportService.Format.CSV) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"");
+        }
+        return response.body(body);
     }
 
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable Integer id) {
+    public User getUserById(@PathVariable Integer id, WebRequest request) {
+        if (ConditionalGet.notModified(request, versions.userTag(id), () -> userService.checkUserExists(id))) {
+            return null;
+        }
         return userService.getUser(id);
     }
 
@@ -48,15 +79,34 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable Integer id) {
+    public List<User> getFriends(@PathVariable Integer id, WebRequest request) {
+        if (ConditionalGet.notModified(request, versions.usersTag("friends-" + id),
+                () -> userService.checkUserExists(id))) {
+            return null;
+        }
         return userService.getFriends(id);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public List<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
+    public List<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId,
+                                       WebRequest request) {
+        if (ConditionalGet.notModified(request, versions.usersTag("common-" + id + "-" + otherId),
+                () -> userService.checkUsersExist(id, otherId))) {
+            return null;
+        }
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable Integer id, @RequestParam(required = false) Integer limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable Integer id, @RequestParam(required = false) Integer limit) {
+        return recommendationService.getRecommendations(id, limit);
+    }
+
     @PutMapping("/{id}/friends/confirm/{friendId}")
     public void confirmFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
         userService.confirmFriend(id, friendId);
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.filmorate.metrics.SqlProfilingAsyncInterceptor;
+import ru.yandex.practicum.filmorate.model.FieldSet;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfiguration implements WebMvcConfigurer {
+    private final CacheControlInterceptor cacheControlInterceptor;
+    private final SqlProfilingAsyncInterceptor sqlProfilingAsyncInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(cacheControlInterceptor).excludePathPatterns("/internal/**");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(sqlProfilingAsyncInterceptor);
+    }
+
+    // Film и User помечены @JsonFilter, без фильтра по умолчанию ObjectMapper не смог бы их записать
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldSetFilters() {
+        return builder -> builder.filters(FieldSet.serializeAll());
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики HTTP по маршрутам: гистограмма времени ответа, число ответов по классам статуса
+ * и объём тел ответов. Отдаются в текстовом формате Prometheus.
+ * <p>
+ * Маршрут - это метод и шаблон обработчика ({@code GET /films/{id}}), а не фактический путь,
+ * поэтому число серий ограничено числом обработчиков. Запись не выделяет память: ключи
+ * ищутся во вложенных картах по уже существующим строкам метода и шаблона.
+ */
+@Component
+public class HttpMetrics {
+    public static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+    private static final int MAX_ROUTES = 500;
+
+    private final Map<String, Map<String, RouteMetrics>> routes = new ConcurrentHashMap<>();
+
+    public void record(String method, String route, int status, long nanos, long responseBytes) {
+        RouteMetrics metrics = routes.computeIfAbsent(method, key -> new ConcurrentHashMap<>()).get(route);
+        if (metrics == null) {
+            metrics = register(method, route);
+        }
+        metrics.latency.record(nanos);
+        int statusClass = status / 100 - 1;
+        if (statusClass >= 0 && statusClass < STATUS_CLASSES.length) {
+            metrics.statuses[statusClass].increment();
+        }
+        if (responseBytes >= 0) {
+            metrics.responseBytes.add(responseBytes);
+            metrics.responseBytesCount.increment();
+        }
+    }
+
+    public String scrape() {
+        Map<String, RouteMetrics> sorted = new TreeMap<>();
+        routes.forEach((method, byRoute) -> byRoute.forEach((route, metrics) ->
+                sorted.put(labels(method, route), metrics)));
+
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP filmorate_http_request_duration_seconds Время обработки HTTP-запроса\n");
+        out.append("# TYPE filmorate_http_request_duration_seconds summary\n");
+        sorted.forEach((labels, metrics) -> {
+            long[] values = metrics.latency.percentiles(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                sample(out, "filmorate_http_request_duration_seconds",
+                        labels + ",quantile=\"" + QUANTILES[i] + "\"", seconds(values[i]));
+            }
+            sample(out, "filmorate_http_request_duration_seconds_sum", labels, seconds(metrics.latency.sum()));
+            sample(out, "filmorate_http_request_duration_seconds_count", labels,
+                    Long.toString(metrics.latency.count()));
+        });
+
+        out.append("# HELP filmorate_http_requests_total Число ответов по классам HTTP-статуса\n");
+        out.append("# TYPE filmorate_http_requests_total counter\n");
+        sorted.forEach((labels, metrics) -> {
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                long count = metrics.statuses[i].sum();
+                if (count > 0) {
+                    sample(out, "filmorate_http_requests_total",
+                            labels + ",status=\"" + STATUS_CLASSES[i] + "\"", Long.toString(count));
+                }
+            }
+        });
+
+        out.append("# HELP filmorate_http_response_size_bytes Размер тела HTTP-ответа\n");
+        out.append("# TYPE filmorate_http_response_size_bytes summary\n");
+        sorted.forEach((labels, metrics) -> {
+            sample(out, "filmorate_http_response_size_bytes_sum", labels,
+                    Long.toString(metrics.responseBytes.sum()));
+            sample(out, "filmorate_http_response_size_bytes_count", labels,
+                    Long.toString(metrics.responseBytesCount.sum()));
+        });
+        return out.toString();
+    }
+
+    public void reset() {
+        routes.clear();
+    }
+
+    private RouteMetrics register(String method, String route) {
+        Map<String, RouteMetrics> byRoute = routes.get(method);
+        if (routes.values().stream().mapToInt(Map::size).sum() >= MAX_ROUTES) {
+            return byRoute.computeIfAbsent(UNMATCHED_ROUTE, key -> new RouteMetrics());
+        }
+        return byRoute.computeIfAbsent(route, key -> new RouteMetrics());
+    }
+
+    private static String labels(String method, String route) {
+        return "method=\"" + escape(method) + "\",route=\"" + escape(route) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000.0);
+    }
+
+    private static final class RouteMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder[] statuses = new LongAdder[STATUS_CLASSES.length];
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder responseBytesCount = new LongAdder();
+
+        private RouteMetrics() {
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = new LongAdder();
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.NPlusOneIncident;
+import ru.yandex.practicum.filmorate.model.RouteSqlStats;
+import ru.yandex.practicum.filmorate.model.SqlProfile;
+import ru.yandex.practicum.filmorate.model.SqlStatementStats;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Статистика SQL-запросов: число вызовов, гистограмма времени и число строк по каждому
+ * нормализованному запросу, а также разбивка по HTTP-маршрутам.
+ * <p>
+ * Запросы, выполненные внутри HTTP-запроса, дополнительно считаются в профиле этого запроса
+ * (см. {@link SqlProfilingFilter}). Если один и тот же запрос выполнился за HTTP-запрос больше
+ * {@code filmorate.sql-profiler.n-plus-one-threshold} раз, это фиксируется как N+1.
+ * <p>
+ * Профиль запроса живёт в потоке, который выполняет SQL. Асинхронная часть ответа
+ * ({@code StreamingResponseBody}) идёт в другом потоке, поэтому профиль переносится туда через
+ * {@link #attachRequest}/{@link #detachRequest} и закрывается по завершении асинхронного запроса.
+ */
+@Component
+@Slf4j
+public class SqlProfiler {
+    private static final int MAX_STATEMENTS = 1000;
+    private static final int MAX_INCIDENTS = 100;
+    private static final String UNKNOWN_SQL = "<unknown>";
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final boolean enabled;
+    private final int nPlusOneThreshold;
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    private final Map<String, String> normalizedSql = new ConcurrentHashMap<>();
+    private final Deque<NPlusOneIncident> incidents = new ArrayDeque<>();
+    private final ThreadLocal<RequestProfile> currentRequest = new ThreadLocal<>();
+
+    public SqlProfiler(@Value("${filmorate.sql-profiler.enabled:false}") boolean enabled,
+                       @Value("${filmorate.sql-profiler.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        this.enabled = enabled;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public RequestProfile beginRequest() {
+        RequestProfile profile = new RequestProfile();
+        currentRequest.set(profile);
+        return profile;
+    }
+
+    /**
+     * Профиль HTTP-запроса, в котором работает текущий поток, или {@code null}.
+     */
+    public RequestProfile currentRequest() {
+        return currentRequest.get();
+    }
+
+    /**
+     * Продолжает профиль запроса в текущем потоке, например в потоке асинхронной части ответа.
+     */
+    public void attachRequest(RequestProfile profile) {
+        currentRequest.set(profile);
+    }
+
+    public void detachRequest() {
+        currentRequest.remove();
+    }
+
+    public void endRequest(String route) {
+        RequestProfile profile = currentRequest.get();
+        currentRequest.remove();
+        if (profile != null) {
+            endRequest(profile, route);
+        }
+    }
+
+    public void endRequest(RequestProfile profile, String route) {
+        Map<String, Integer> executions;
+        synchronized (profile) {
+            routes.computeIfAbsent(route, key -> new RouteStats()).record(profile);
+            executions = new HashMap<>();
+            profile.executions.forEach((sql, count) -> executions.put(sql, count[0]));
+        }
+
+        executions.forEach((sql, count) -> {
+            if (count > nPlusOneThreshold) {
+                log.warn("Возможный N+1: {} выполнил запрос {} раз: {}", route, count, sql);
+                synchronized (incidents) {
+                    if (incidents.size() >= MAX_INCIDENTS) {
+                        incidents.removeFirst();
+                    }
+                    incidents.addLast(new NPlusOneIncident(route, sql, count, LocalDateTime.now()));
+                }
+            }
+        });
+    }
+
+    public void recordExecution(String sql, long nanos, long rows) {
+        String normalized = normalize(sql);
+        StatementStats stats = statements.get(normalized);
+        if (stats == null) {
+            if (statements.size() >= MAX_STATEMENTS) {
+                return;
+            }
+            stats = statements.computeIfAbsent(normalized, key -> new StatementStats());
+        }
+        stats.calls.increment();
+        stats.rows.add(rows);
+        stats.latency.record(nanos);
+
+        RequestProfile profile = currentRequest.get();
+        if (profile != null) {
+            // Профиль по очереди пишут поток запроса и поток асинхронной части ответа
+            synchronized (profile) {
+                profile.executions.computeIfAbsent(normalized, key -> new int[1])[0]++;
+                profile.statements++;
+                profile.nanos += nanos;
+            }
+        }
+    }
+
+    public void recordRows(String sql, long rows) {
+        StatementStats stats = statements.get(normalize(sql));
+        if (stats != null) {
+            stats.rows.add(rows);
+        }
+    }
+
+    public SqlProfile getProfile() {
+        List<SqlStatementStats> statementStats = new ArrayList<>();
+        statements.forEach((sql, stats) -> {
+            long[] percentiles = stats.latency.percentiles(0.5, 0.99);
+            statementStats.add(SqlStatementStats.builder()
+                    .sql(sql)
+                    .calls(stats.calls.sum())
+                    .rows(stats.rows.sum())
+                    .totalMs(toMillis(stats.latency.sum()))
+                    .p50Ms(toMillis(percentiles[0]))
+                    .p99Ms(toMillis(percentiles[1]))
+                    .maxMs(toMillis(stats.latency.max()))
+                    .build());
+        });
+        statementStats.sort(Comparator.comparingDouble(SqlStatementStats::getTotalMs).reversed());
+
+        List<RouteSqlStats> routeStats = new ArrayList<>();
+        routes.forEach((route, stats) -> routeStats.add(RouteSqlStats.builder()
+                .route(route)
+                .requests(stats.requests.sum())
+                .statements(stats.statements.sum())
+                .sqlMs(toMillis(stats.nanos.sum()))
+                .maxStatementsPerRequest((int) stats.maxStatements.get())
+                .build()));
+        routeStats.sort(Comparator.comparingDouble(RouteSqlStats::getSqlMs).reversed());
+
+        List<NPlusOneIncident> recentIncidents;
+        synchronized (incidents) {
+            recentIncidents = new ArrayList<>(incidents);
+        }
+        Collections.reverse(recentIncidents);
+
+        return new SqlProfile(statementStats, routeStats, recentIncidents);
+    }
+
+    public void reset() {
+        statements.clear();
+        routes.clear();
+        synchronized (incidents) {
+            incidents.clear();
+        }
+    }
+
+    String normalize(String sql) {
+        if (sql == null) {
+            return UNKNOWN_SQL;
+        }
+        String cached = normalizedSql.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String normalized = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("IN (?)");
+        if (normalizedSql.size() < MAX_STATEMENTS) {
+            normalizedSql.put(sql, normalized);
+        }
+        return normalized;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class StatementStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    private static final class RouteStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Long::max, 0);
+
+        private void record(RequestProfile profile) {
+            requests.increment();
+            statements.add(profile.statements);
+            nanos.add(profile.nanos);
+            maxStatements.accumulate(profile.statements);
+        }
+    }
+
+    /**
+     * SQL, выполненный за один HTTP-запрос. Снаружи непрозрачен: передаётся между потоками запроса.
+     */
+    public static final class RequestProfile {
+        private final Map<String, int[]> executions = new HashMap<>();
+        private int statements;
+        private long nanos;
+
+        private RequestProfile() {
+        }
+    }
+}
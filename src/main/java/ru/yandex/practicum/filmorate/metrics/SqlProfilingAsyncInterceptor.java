@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Переносит профиль {@link SqlProfiler} из потока запроса в поток, где выполняется асинхронная
+ * часть ответа ({@code StreamingResponseBody}). Без этого SQL потоковых выгрузок не попадал бы
+ * ни в один маршрут и их N+1 не были бы видны.
+ */
+@Component
+public class SqlProfilingAsyncInterceptor implements CallableProcessingInterceptor {
+    private static final String PROFILE_ATTRIBUTE = SqlProfilingAsyncInterceptor.class.getName() + ".profile";
+
+    private final SqlProfiler profiler;
+
+    public SqlProfilingAsyncInterceptor(SqlProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        SqlProfiler.RequestProfile profile = profiler.currentRequest();
+        if (profile != null) {
+            request.setAttribute(PROFILE_ATTRIBUTE, profile, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object profile = request.getAttribute(PROFILE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (profile != null) {
+            profiler.attachRequest((SqlProfiler.RequestProfile) profile);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        profiler.detachRequest();
+    }
+}
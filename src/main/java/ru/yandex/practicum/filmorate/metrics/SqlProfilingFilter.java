@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Привязывает SQL-запросы к HTTP-запросу, в потоке которого они выполнены. Маршрут берётся из
+ * шаблона обработчика ({@code GET /films/{id}}), чтобы разные id не размножали статистику.
+ * <p>
+ * Для асинхронных ответов ({@code /films/stream}, выгрузки) профиль закрывается по завершении
+ * асинхронной обработки, а в поток ответа его переносит {@link SqlProfilingAsyncInterceptor}.
+ */
+@Component
+public class SqlProfilingFilter extends OncePerRequestFilter {
+    private final SqlProfiler profiler;
+
+    public SqlProfilingFilter(SqlProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !profiler.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlProfiler.RequestProfile profile = profiler.beginRequest();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                async = true;
+                request.getAsyncContext().addListener(new CompletionListener(request, profile));
+            }
+        } finally {
+            profiler.detachRequest();
+            if (!async) {
+                profiler.endRequest(profile, route(request));
+            }
+        }
+    }
+
+    static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "UNMATCHED");
+    }
+
+    private class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final SqlProfiler.RequestProfile profile;
+
+        private CompletionListener(HttpServletRequest request, SqlProfiler.RequestProfile profile) {
+            this.request = request;
+            this.profile = profile;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            profiler.endRequest(profile, route(request));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает все {@link DataSource} приложения в {@link ProfilingDataSource}, так что профилируются
+ * запросы и JdbcTemplate, и транзакций, и инициализации схемы.
+ * <p>
+ * Каждый вызов Connection, Statement и ResultSet тогда идёт через JDK-прокси, поэтому профилирование
+ * включается явно ({@code filmorate.sql-profiler.enabled=true}) - в профилях dev и test, но не в рабочей среде.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.sql-profiler.enabled", havingValue = "true")
+public class SqlProfilingPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<SqlProfiler> profiler;
+
+    public SqlProfilingPostProcessor(ObjectProvider<SqlProfiler> profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProfilingDataSource)) {
+            return new ProfilingDataSource(dataSource, profiler.getObject());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResult {
+    private int created;
+    private int failed;
+    @Builder.Default
+    private List<Integer> ids = new ArrayList<>();
+    @Builder.Default
+    private List<BulkItemError> errors = new ArrayList<>();
+}
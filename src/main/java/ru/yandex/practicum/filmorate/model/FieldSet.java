@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import lombok.EqualsAndHashCode;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Поля, запрошенные клиентом через {@code ?fields=name,likes}. Хранилище выбирает только их столбцы
+ * и не читает дочерние таблицы, которых нет в списке, а фильтр {@link #FILTER_ID} не даёт
+ * остальным полям попасть в ответ. {@code id} входит всегда.
+ */
+@EqualsAndHashCode
+public final class FieldSet {
+    public static final String FILTER_ID = "fields";
+    public static final FieldSet ALL = new FieldSet(null);
+
+    private static final FilterProvider SERIALIZE_ALL = new SimpleFilterProvider()
+            .addFilter(FILTER_ID, SimpleBeanPropertyFilter.serializeAll());
+
+    // null - все поля
+    private final Set<String> fields;
+
+    private FieldSet(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Разбирает значение параметра. Пустой или отсутствующий параметр означает все поля.
+     */
+    public static FieldSet parse(String value, Set<String> known) {
+        if (value == null || value.isBlank()) {
+            return ALL;
+        }
+        Set<String> fields = new TreeSet<>();
+        fields.add("id");
+        for (String field : value.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!known.contains(name)) {
+                throw new ValidationException("Неизвестное поле: " + name + ", доступны: " + new TreeSet<>(known));
+            }
+            fields.add(name);
+        }
+        return fields.containsAll(known) ? ALL : new FieldSet(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    /**
+     * Ответ, из которого при сериализации выброшены незапрошенные поля.
+     */
+    public MappingJacksonValue wrap(Object value) {
+        MappingJacksonValue wrapped = new MappingJacksonValue(value);
+        if (fields != null) {
+            wrapped.setFilters(new SimpleFilterProvider()
+                    .addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        } else {
+            wrapped.setFilters(SERIALIZE_ALL);
+        }
+        return wrapped;
+    }
+
+    /**
+     * Фильтры для {@link com.fasterxml.jackson.databind.ObjectMapper}: вне {@link #wrap} сериализуются все поля.
+     */
+    public static FilterProvider serializeAll() {
+        return SERIALIZE_ALL;
+    }
+
+    // Входит в ETag, поэтому порядок полей постоянный
+    @Override
+    public String toString() {
+        return fields == null ? "all" : String.join(",", fields);
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -14,10 +15,14 @@ import java.time.LocalDate;
 import java.util.*;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonFilter(FieldSet.FILTER_ID)
 public class Film {
+    public static final Set<String> FIELDS =
+            Set.of("id", "name", "description", "releaseDate", "duration", "mpa", "genres", "likesCount");
+
     private Integer id;
 
     @NotBlank(message = "Название фильма не может быть пустым")
@@ -37,5 +42,7 @@ public class Film {
     private MpaRating mpa;
 
     private Set<Genre> genres = new HashSet<>();
-    private Set<Integer> likes = new HashSet<>();
-}
\ No newline at end of file
+
+    // Id лайкнувших пользователей отдаются постранично через GET /films/{id}/likes, в фильме - только число
+    private int likesCount;
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Строка выгрузки: поля фильма и id лайкнувших пользователей, которых в самом {@link Film} нет.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FilmExport {
+    @JsonUnwrapped
+    private Film film;
+    private Set<Integer> likes;
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeOperation {
+    private Long id;
+    private Integer filmId;
+    private Integer userId;
+    private boolean like;
+    private LikeOperationStatus status;
+    private String error;
+    private LocalDateTime acceptedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.model;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Множество id поставивших лайк пользователей в сжатом битмапе Roaring: id группируются по старшим
+ * 16 битам, а внутри группы хранятся массивом, битовой картой или интервалами, что компактнее.
+ * Вместо десятков байт на упакованный {@link Integer} в {@link HashSet} выходит 2 байта на лайк и меньше.
+ * Методы синхронизированы, итерация идёт по снимку, поэтому удалять через итератор нельзя -
+ * массовые удаления ({@code removeIf}, {@code removeAll}, {@code retainAll}) работают с битмапом напрямую.
+ */
+public final class LikeSet extends AbstractSet<Integer> {
+    private final RoaringBitmap bitmap;
+
+    public LikeSet() {
+        this(new RoaringBitmap());
+    }
+
+    private LikeSet(RoaringBitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public synchronized LikeSet copy() {
+        return new LikeSet(bitmap.clone());
+    }
+
+    @Override
+    public synchronized boolean add(Integer userId) {
+        return bitmap.checkedAdd(userId);
+    }
+
+    @Override
+    public synchronized boolean remove(Object userId) {
+        return userId instanceof Integer id && bitmap.checkedRemove(id);
+    }
+
+    @Override
+    public synchronized boolean contains(Object userId) {
+        return userId instanceof Integer id && bitmap.contains(id);
+    }
+
+    @Override
+    public synchronized int size() {
+        return bitmap.getCardinality();
+    }
+
+    @Override
+    public synchronized void clear() {
+        bitmap.clear();
+    }
+
+    // Порядок - по возрастанию id
+    @Override
+    public Iterator<Integer> iterator() {
+        RoaringBitmap snapshot;
+        synchronized (this) {
+            snapshot = bitmap.clone();
+        }
+        IntIterator iterator = snapshot.getIntIterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public synchronized boolean removeIf(Predicate<? super Integer> filter) {
+        RoaringBitmap removed = new RoaringBitmap();
+        IntIterator iterator = bitmap.getIntIterator();
+        while (iterator.hasNext()) {
+            int userId = iterator.next();
+            if (filter.test(userId)) {
+                removed.add(userId);
+            }
+        }
+        bitmap.andNot(removed);
+        return !removed.isEmpty();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> userIds) {
+        return removeIf(userIds::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> userIds) {
+        return removeIf(userId -> !userIds.contains(userId));
+    }
+
+    /**
+     * До {@code limit} id больше {@code afterUserId} по возрастанию.
+     */
+    public synchronized List<Integer> page(int afterUserId, int limit) {
+        List<Integer> page = new ArrayList<>(Math.min(limit, bitmap.getCardinality()));
+        PeekableIntIterator iterator = bitmap.getIntIterator();
+        iterator.advanceIfNeeded(afterUserId + 1);
+        while (iterator.hasNext() && page.size() < limit) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    /**
+     * Переводит подходящие контейнеры в интервалы. Имеет смысл после массовой загрузки.
+     */
+    public synchronized void compact() {
+        bitmap.runOptimize();
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RouteSqlStats {
+    private String route;
+    private long requests;
+    private long statements;
+    private double sqlMs;
+    private int maxStatementsPerRequest;
+}
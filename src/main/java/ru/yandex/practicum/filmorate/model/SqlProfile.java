@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SqlProfile {
+    @Builder.Default
+    private List<SqlStatementStats> statements = new ArrayList<>();
+    @Builder.Default
+    private List<RouteSqlStats> routes = new ArrayList<>();
+    @Builder.Default
+    private List<NPlusOneIncident> suspectedNPlusOne = new ArrayList<>();
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SqlStatementStats {
+    private String sql;
+    private long calls;
+    private long rows;
+    private double totalMs;
+    private double p50Ms;
+    private double p99Ms;
+    private double maxMs;
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
@@ -16,7 +17,10 @@ import java.util.*;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonFilter(FieldSet.FILTER_ID)
 public class User {
+    public static final Set<String> FIELDS = Set.of("id", "email", "login", "name", "birthday", "friends");
+
     private Integer id;
 
     @NotBlank(message = "Email не может быть пустым")
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.replica.ReplicaReadPolicy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики версий для ETag. Версия увеличивается после того, как изменение стало видно читателям,
+ * поэтому ETag, посчитанный до загрузки сущности, никогда не новее её содержимого.
+ * <p>
+ * Изменение фильма или пользователя увеличивает и его собственную версию, и версию всех фильмов
+ * (пользователей), от которой зависят списки. В ETag входит метка запуска приложения, так что
+ * после перезапуска старые ETag перестают совпадать.
+ * <p>
+ * Версии живут в процессе, а обработчик с допустимым отставанием может прочитать реплику, где изменения
+ * ещё нет. Пока реплика отстаёт, такой обработчик ETag не получает (методы возвращают null).
+ */
+@Component
+public class EntityVersions {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Integer, Long> filmVersions = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> userVersions = new ConcurrentHashMap<>();
+    private final AtomicLong films = new AtomicLong();
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong genres = new AtomicLong();
+    private final AtomicLong mpa = new AtomicLong();
+    private ReplicaReadPolicy replicaReadPolicy;
+
+    @Autowired(required = false)
+    public void setReplicaReadPolicy(ReplicaReadPolicy replicaReadPolicy) {
+        this.replicaReadPolicy = replicaReadPolicy;
+    }
+
+    public void filmChanged(Integer id) {
+        filmVersions.merge(id, 1L, Long::sum);
+        films.incrementAndGet();
+    }
+
+    public void userChanged(Integer id) {
+        userVersions.merge(id, 1L, Long::sum);
+        users.incrementAndGet();
+    }
+
+    public void genresChanged() {
+        genres.incrementAndGet();
+    }
+
+    public void mpaChanged() {
+        mpa.incrementAndGet();
+    }
+
+    public String filmTag(Integer id) {
+        return tag("film-" + id, filmVersions.getOrDefault(id, 0L));
+    }
+
+    public String filmsTag(String view) {
+        return tag("films-" + view, films.get());
+    }
+
+    public String userTag(Integer id) {
+        return tag("user-" + id, userVersions.getOrDefault(id, 0L));
+    }
+
+    public String usersTag(String view) {
+        return tag("users-" + view, users.get());
+    }
+
+    public String genresTag(String view) {
+        return tag("genres-" + view, genres.get());
+    }
+
+    public String mpaTag(String view) {
+        return tag("mpa-" + view, mpa.get());
+    }
+
+    // Отставание проверяется после чтения версии: догнавшая реплика уже содержит всё, что в неё вошло
+    private String tag(String resource, long version) {
+        String tag = "\"" + resource + "-" + version + "-" + epoch + "\"";
+        return replicaReadPolicy != null && replicaReadPolicy.mayReadStale() ? null : tag;
+    }
+}
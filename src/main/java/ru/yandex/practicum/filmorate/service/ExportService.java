@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmExport;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Выгрузка всех фильмов или пользователей в NDJSON или CSV. Строки пишутся в ответ по мере чтения курсора,
+ * поэтому память не зависит от размера таблиц, а первые байты уходят клиенту сразу после первой строки.
+ */
+@Service
+@Slf4j
+public class ExportService {
+    private static final String FILMS_CSV_HEADER =
+            "id,name,description,release_date,duration,mpa_id,mpa_name,genre_ids,likes";
+    private static final String USERS_CSV_HEADER = "id,email,login,name,birthday,friend_ids";
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    @Autowired
+    public ExportService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                         @Qualifier("userDbStorage") UserStorage userStorage, ObjectMapper objectMapper,
+                         @Value("${filmorate.export.fetch-size:1000}") int fetchSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    public enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Неизвестный формат выгрузки: " + value + ", ожидается ndjson или csv");
+            }
+        }
+    }
+
+    public void exportFilms(Format format, OutputStream outputStream) throws IOException {
+        long started = System.nanoTime();
+        long rows = export(format, outputStream, consumer -> filmStorage.exportFilms(fetchSize, consumer),
+                FILMS_CSV_HEADER, this::filmRow);
+        log.info("Выгружено фильмов: {} ({}) за {} мс", rows, format, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public void exportUsers(Format format, OutputStream outputStream) throws IOException {
+        long started = System.nanoTime();
+        long rows = export(format, outputStream, consumer -> userStorage.exportUsers(fetchSize, consumer),
+                USERS_CSV_HEADER, this::userRow);
+        log.info("Выгружено пользователей: {} ({}) за {} мс", rows, format, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private <T> long export(Format format, OutputStream outputStream, Consumer<Consumer<T>> source,
+                            String csvHeader, CsvRow<T> csvRow) throws IOException {
+        return format == Format.NDJSON
+                ? writeNdjson(outputStream, source)
+                : writeCsv(outputStream, csvHeader, csvRow, source);
+    }
+
+    private <T> long writeNdjson(OutputStream outputStream, Consumer<Consumer<T>> source) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            RowCounter counter = new RowCounter();
+            source.accept(item -> {
+                try {
+                    generator.writeObject(item);
+                    generator.writeRaw('\n');
+                    if (counter.next()) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return counter.rows;
+        }
+    }
+
+    private <T> long writeCsv(OutputStream outputStream, String header, CsvRow<T> row,
+                              Consumer<Consumer<T>> source) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            writer.write(header);
+            writer.write("\r\n");
+            RowCounter counter = new RowCounter();
+            source.accept(item -> {
+                try {
+                    row.write(writer, item);
+                    writer.write("\r\n");
+                    if (counter.next()) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return counter.rows;
+        }
+    }
+
+    private void filmRow(Writer writer, FilmExport row) throws IOException {
+        Film film = row.getFilm();
+        writer.write(film.getId() + ",");
+        writer.write(csv(film.getName()) + ",");
+        writer.write(csv(film.getDescription()) + ",");
+        writer.write(film.getReleaseDate() + "," + film.getDuration() + ",");
+        writer.write(film.getMpa() == null ? ",," : film.getMpa().getId() + "," + csv(film.getMpa().getName()) + ",");
+        writer.write(film.getGenres().stream().map(Genre::getId).map(String::valueOf).collect(Collectors.joining(";")));
+        writer.write(",");
+        writer.write(joinIds(row.getLikes()));
+    }
+
+    private void userRow(Writer writer, User user) throws IOException {
+        writer.write(user.getId() + ",");
+        writer.write(csv(user.getEmail()) + ",");
+        writer.write(csv(user.getLogin()) + ",");
+        writer.write(csv(user.getName()) + ",");
+        writer.write(user.getBirthday() + ",");
+        writer.write(joinIds(user.getFriends().keySet()));
+    }
+
+    private static String joinIds(Collection<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(";"));
+    }
+
+    // RFC 4180: поле в кавычках, если в нём есть разделитель, кавычка или перевод строки
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @FunctionalInterface
+    private interface CsvRow<T> {
+        void write(Writer writer, T item) throws IOException;
+    }
+
+    // Первая строка уходит клиенту сразу, дальше буфер сбрасывается раз в fetchSize строк
+    private final class RowCounter {
+        private long rows;
+
+        boolean next() {
+            rows++;
+            return rows == 1 || rows % fetchSize == 0;
+        }
+    }
+}
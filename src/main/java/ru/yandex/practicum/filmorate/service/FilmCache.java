@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Кэш фильмов по id с вытеснением давно не читавшихся записей (приближённый LRU по выборке)
+ * и ограничением времени жизни.
+ * <p>
+ * Попадание читает {@link ConcurrentHashMap} без блокировок, изменения идут через {@code compute} по ключу
+ * и затрагивают только свой фильм. Закэшированный {@link Film} не изменяется: число лайков патчится
+ * заменой записи на копию. На время загрузки из хранилища под ключом лежит метка загрузки; результат кладётся
+ * в кэш, только если метка ещё на месте. Любое изменение этого фильма метку снимает, иначе параллельный
+ * промах мог бы вернуть в кэш устаревшие данные.
+ */
+@Component
+public class FilmCache {
+    private static final int EVICTION_SAMPLE_SIZE = 16;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, Slot> films = new ConcurrentHashMap<>();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public FilmCache(@Value("${filmorate.film-cache.max-size:10000}") int maxSize,
+                     @Value("${filmorate.film-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public Film get(Integer id, Function<Integer, Film> loader) {
+        Slot slot = films.get(id);
+        if (slot instanceof CachedFilm cached) {
+            if (System.nanoTime() - cached.loadedAt < ttlNanos) {
+                cached.lastAccess = accessClock.incrementAndGet();
+                hits.increment();
+                return cached.film;
+            }
+            if (films.remove(id, cached)) {
+                expirations.increment();
+            }
+        }
+        misses.increment();
+
+        if (maxSize <= 0) {
+            return loader.apply(id);
+        }
+        Loading loading = new Loading();
+        films.compute(id, (key, current) -> current instanceof CachedFilm ? current : loading);
+
+        Film film = loader.apply(id);
+        if (film == null) {
+            films.remove(id, loading);
+            return null;
+        }
+        CachedFilm loaded = new CachedFilm(film, System.nanoTime(), accessClock.incrementAndGet());
+        if (films.replace(id, loading, loaded)) {
+            evictIfFull();
+        }
+        return film;
+    }
+
+    public void put(Film film) {
+        if (maxSize > 0) {
+            films.put(film.getId(), new CachedFilm(film, System.nanoTime(), accessClock.incrementAndGet()));
+            evictIfFull();
+        } else {
+            films.remove(film.getId());
+        }
+    }
+
+    public void invalidate(Integer id) {
+        films.remove(id);
+    }
+
+    public void invalidateAll() {
+        films.clear();
+    }
+
+    public void likeAdded(Integer filmId) {
+        patchLikesCount(filmId, 1);
+    }
+
+    public void likeRemoved(Integer filmId) {
+        patchLikesCount(filmId, -1);
+    }
+
+    private void patchLikesCount(Integer filmId, int delta) {
+        // Незавершённую загрузку этого фильма отменяем: она могла прочитать лайки до изменения
+        films.computeIfPresent(filmId, (key, current) -> {
+            if (!(current instanceof CachedFilm cached)) {
+                return null;
+            }
+            Film patched = cached.film.toBuilder().likesCount(cached.film.getLikesCount() + delta).build();
+            return new CachedFilm(patched, cached.loadedAt, cached.lastAccess);
+        });
+    }
+
+    /**
+     * Пока кэш больше {@code maxSize}, вытесняет самую давно читавшуюся запись из случайной выборки
+     * примерно в {@link #EVICTION_SAMPLE_SIZE} записей, как это делает Redis. Полный просмотр таблицы на
+     * каждом промахе заполненного кэша обходился бы в O(maxSize), а параллельные промахи выбирали бы одну
+     * и ту же самую старую запись.
+     */
+    private void evictIfFull() {
+        while (films.size() > maxSize) {
+            Map.Entry<Integer, Slot> eldest = sampleEldest();
+            if (eldest == null) {
+                return;
+            }
+            if (films.remove(eldest.getKey(), eldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Выборка начинается со случайного места таблицы. Сплитератор {@link ConcurrentHashMap} делится пополам
+     * за O(1) по индексам корзин, поэтому это место находится за O(log size) без обхода предшествующих записей.
+     * Если в участке меньше {@link #EVICTION_SAMPLE_SIZE} записей, выборка продолжается следующими участками,
+     * а дойдя до конца таблицы - с её начала.
+     */
+    private Map.Entry<Integer, Slot> sampleEldest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Deque<Spliterator<Map.Entry<Integer, Slot>>> following = new ArrayDeque<>();
+        following.push(films.entrySet().spliterator());
+        Spliterator<Map.Entry<Integer, Slot>> region = films.entrySet().spliterator();
+        while (region.estimateSize() > EVICTION_SAMPLE_SIZE) {
+            Spliterator<Map.Entry<Integer, Slot>> prefix = region.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            if (random.nextBoolean()) {
+                following.push(region);
+                region = prefix;
+            }
+        }
+
+        EldestEntry eldest = new EldestEntry();
+        while (region != null && eldest.sampled < EVICTION_SAMPLE_SIZE) {
+            while (eldest.sampled < EVICTION_SAMPLE_SIZE && region.tryAdvance(eldest)) {
+                // выборка набирается в eldest
+            }
+            region = following.poll();
+        }
+        return eldest.entry;
+    }
+
+    public CacheStats getStats() {
+        return CacheStats.builder()
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .expirations(expirations.sum())
+                .size((int) films.values().stream().filter(CachedFilm.class::isInstance).count())
+                .maxSize(maxSize)
+                .build();
+    }
+
+    private sealed interface Slot permits CachedFilm, Loading {
+    }
+
+    private static final class CachedFilm implements Slot {
+        private final Film film;
+        private final long loadedAt;
+        private volatile long lastAccess;
+
+        private CachedFilm(Film film, long loadedAt, long lastAccess) {
+            this.film = film;
+            this.loadedAt = loadedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Loading implements Slot {
+    }
+
+    private static final class EldestEntry implements Consumer<Map.Entry<Integer, Slot>> {
+        private Map.Entry<Integer, Slot> entry;
+        private long lastAccess = Long.MAX_VALUE;
+        private int sampled;
+
+        @Override
+        public void accept(Map.Entry<Integer, Slot> candidate) {
+            if (candidate.getValue() instanceof CachedFilm cached) {
+                sampled++;
+                if (cached.lastAccess < lastAccess) {
+                    entry = candidate;
+                    lastAccess = cached.lastAccess;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.BulkItemError;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая загрузка фильмов. Элементы проверяются по одному (аннотации модели и справочники из кэша),
+ * корректные вставляются пачками по {@code filmorate.bulk.batch-size}, каждая пачка в своей транзакции.
+ * Если пачка не записалась, её элементы повторяются по одному, чтобы ошибка досталась только виновнику.
+ */
+@Service
+@Slf4j
+public class FilmImportService {
+    private final FilmStorage filmStorage;
+    private final MpaService mpaService;
+    private final GenreService genreService;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final FilmTextIndex textIndex;
+    private final EntityVersions versions;
+    private final Validator validator;
+    private final int batchSize;
+
+    @Autowired
+    public FilmImportService(@Qualifier("filmDbStorage") FilmStorage filmStorage, MpaService mpaService,
+                             GenreService genreService, PopularityLeaderboard leaderboard,
+                             FilmSearchIndex searchIndex, FilmTextIndex textIndex, EntityVersions versions,
+                             Validator validator, @Value("${filmorate.bulk.batch-size:1000}") int batchSize) {
+        this.filmStorage = filmStorage;
+        this.mpaService = mpaService;
+        this.genreService = genreService;
+        this.leaderboard = leaderboard;
+        this.searchIndex = searchIndex;
+        this.textIndex = textIndex;
+        this.versions = versions;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public BulkImportResult importFilms(Iterator<Film> films) {
+        BulkImportResult result = new BulkImportResult();
+        List<Film> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        int index = 0;
+
+        while (true) {
+            Film film;
+            try {
+                if (!films.hasNext()) {
+                    break;
+                }
+                film = films.next();
+            } catch (RuntimeException e) {
+                addError(result, index, "Некорректный JSON, загрузка остановлена: " + e.getMessage());
+                break;
+            }
+
+            result.getIds().add(null);
+            String error = validate(film);
+            if (error != null) {
+                addError(result, index, error);
+            } else {
+                batch.add(film);
+                batchIndexes.add(index);
+                if (batch.size() >= batchSize) {
+                    flush(batch, batchIndexes, result);
+                }
+            }
+            index++;
+        }
+        flush(batch, batchIndexes, result);
+
+        log.info("Массовая загрузка фильмов: создано {}, с ошибками {}", result.getCreated(), result.getFailed());
+        return result;
+    }
+
+    private String validate(Film film) {
+        if (film == null) {
+            return "Пустой элемент";
+        }
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            mpaService.getMpaRatingById(film.getMpa().getId());
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    genreService.getGenreById(genre.getId());
+                }
+            }
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private void flush(List<Film> batch, List<Integer> batchIndexes, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Integer> ids = filmStorage.addFilms(batch);
+            for (int i = 0; i < ids.size(); i++) {
+                created(result, batchIndexes.get(i), ids.get(i), batch.get(i));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Пачка из {} фильмов не записана, повтор по одному: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    Film film = batch.get(i);
+                    created(result, batchIndexes.get(i), filmStorage.addFilms(List.of(film)).get(0), film);
+                } catch (DataAccessException itemError) {
+                    addError(result, batchIndexes.get(i),
+                            "Ошибка записи: " + itemError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    private void created(BulkImportResult result, int index, Integer id, Film film) {
+        result.getIds().set(index, id);
+        result.setCreated(result.getCreated() + 1);
+        leaderboard.addFilm(id);
+        searchIndex.put(id, film);
+        textIndex.put(id, film);
+        versions.filmChanged(id);
+    }
+
+    private void addError(BulkImportResult result, int index, String message) {
+        result.getErrors().add(new BulkItemError(index, message));
+        result.setFailed(result.getFailed() + 1);
+    }
+}
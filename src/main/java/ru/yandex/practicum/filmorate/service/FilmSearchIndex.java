@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FieldSet;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Индекс фильмов для поиска по жанрам, рейтингу MPA и дате выхода без просмотра таблицы {@code films}.
+ * <p>
+ * По каждому жанру и рейтингу хранится битмап Roaring с id фильмов, а даты выхода - отсортированным
+ * массивом ключей {@code день << 32 | id}, так что фильмы за диапазон лет лежат в нём подряд.
+ * Новые ключи дописываются в хвост и вливаются в отсортированную часть при следующем поиске, поэтому
+ * массовая загрузка не сдвигает массив на каждый фильм. Индекс заполняется при старте и обновляется
+ * из {@link FilmService} и {@link FilmImportService}.
+ */
+@Component
+@Slf4j
+public class FilmSearchIndex {
+    private static final FieldSet FACETS = FieldSet.parse("releaseDate,mpa,genres", Film.FIELDS);
+
+    private final FilmStorage filmStorage;
+    private final Map<Integer, RoaringBitmap> byGenre = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> byMpa = new HashMap<>();
+    private final Map<Integer, Facets> facetsByFilm = new HashMap<>();
+    private long[] byReleaseDate = new long[16];
+    // [0, sortedSize) отсортирован, [sortedSize, size) - добавленные после последнего поиска
+    private int sortedSize;
+    private int size;
+
+    @Autowired
+    public FilmSearchIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void load() {
+        Collection<Film> films = filmStorage.getAllFilms(FACETS);
+        synchronized (this) {
+            films.forEach(film -> put(film.getId(), film));
+            sortByReleaseDate();
+            byGenre.values().forEach(RoaringBitmap::runOptimize);
+            byMpa.values().forEach(RoaringBitmap::runOptimize);
+        }
+        log.info("Индекс поиска фильмов загружен, фильмов: {}", films.size());
+    }
+
+    /**
+     * Добавляет фильм или заменяет его прежние жанры, рейтинг и дату выхода.
+     */
+    public synchronized void put(Integer filmId, Film film) {
+        remove(filmId);
+        int[] genreIds = film.getGenres() == null ? new int[0]
+                : film.getGenres().stream().map(Genre::getId).filter(Objects::nonNull).mapToInt(Integer::intValue)
+                .distinct().toArray();
+        Integer mpaId = film.getMpa() == null ? null : film.getMpa().getId();
+        long dateKey = dateKey(film.getReleaseDate().toEpochDay(), filmId);
+
+        for (int genreId : genreIds) {
+            byGenre.computeIfAbsent(genreId, id -> new RoaringBitmap()).add(filmId);
+        }
+        if (mpaId != null) {
+            byMpa.computeIfAbsent(mpaId, id -> new RoaringBitmap()).add(filmId);
+        }
+        if (size == byReleaseDate.length) {
+            byReleaseDate = Arrays.copyOf(byReleaseDate, size * 2);
+        }
+        byReleaseDate[size++] = dateKey;
+        facetsByFilm.put(filmId, new Facets(genreIds, mpaId, dateKey));
+    }
+
+    public synchronized int size() {
+        return facetsByFilm.size();
+    }
+
+    /**
+     * Id фильмов, подходящих под все заданные условия. Внутри списка жанров (рейтингов) условия
+     * объединяются через ИЛИ, пустой список и {@code null} вместо года не ограничивают выборку.
+     * Годы включаются в диапазон. Возвращает {@code null}, если ограничений нет совсем.
+     */
+    public synchronized RoaringBitmap search(Collection<Integer> genreIds, Collection<Integer> mpaIds,
+                                             Integer yearFrom, Integer yearTo) {
+        List<RoaringBitmap> conditions = new ArrayList<>(3);
+        if (genreIds != null && !genreIds.isEmpty()) {
+            conditions.add(union(byGenre, genreIds));
+        }
+        if (mpaIds != null && !mpaIds.isEmpty()) {
+            conditions.add(union(byMpa, mpaIds));
+        }
+        if (yearFrom != null || yearTo != null) {
+            conditions.add(releasedBetween(yearFrom, yearTo));
+        }
+        if (conditions.isEmpty()) {
+            return null;
+        }
+        // Сначала самые маленькие битмапы: пересечение с ними быстрее сужает результат
+        conditions.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        RoaringBitmap result = conditions.get(0).clone();
+        for (int i = 1; i < conditions.size() && !result.isEmpty(); i++) {
+            result.and(conditions.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * До {@code count} id фильмов по дате выхода, новые первыми.
+     */
+    public synchronized List<Integer> newest(int count, IntPredicate filter) {
+        sortByReleaseDate();
+        List<Integer> result = new ArrayList<>(Math.min(count, size));
+        for (int i = size - 1; i >= 0 && result.size() < count; i--) {
+            int filmId = (int) byReleaseDate[i];
+            if (filter.test(filmId)) {
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    private static RoaringBitmap union(Map<Integer, RoaringBitmap> index, Collection<Integer> ids) {
+        List<RoaringBitmap> bitmaps = new ArrayList<>(ids.size());
+        for (Integer id : new HashSet<>(ids)) {
+            RoaringBitmap bitmap = index.get(id);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0);
+        }
+        return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+    }
+
+    private RoaringBitmap releasedBetween(Integer yearFrom, Integer yearTo) {
+        sortByReleaseDate();
+        int from = yearFrom == null ? 0 : lowerBound(LocalDate.of(yearFrom, 1, 1).toEpochDay());
+        int to = yearTo == null ? size : lowerBound(LocalDate.of(yearTo + 1, 1, 1).toEpochDay());
+        RoaringBitmap result = new RoaringBitmap();
+        for (int i = from; i < to; i++) {
+            result.add((int) byReleaseDate[i]);
+        }
+        return result;
+    }
+
+    // Позиция первого ключа с датой не раньше epochDay
+    private int lowerBound(long epochDay) {
+        int position = Arrays.binarySearch(byReleaseDate, 0, size, dateKey(epochDay, 0));
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void remove(Integer filmId) {
+        Facets facets = facetsByFilm.remove(filmId);
+        if (facets == null) {
+            return;
+        }
+        for (int genreId : facets.genreIds()) {
+            byGenre.get(genreId).remove(filmId);
+        }
+        if (facets.mpaId() != null) {
+            byMpa.get(facets.mpaId()).remove(filmId);
+        }
+        int position = Arrays.binarySearch(byReleaseDate, 0, sortedSize, facets.dateKey());
+        if (position >= 0) {
+            System.arraycopy(byReleaseDate, position + 1, byReleaseDate, position, size - position - 1);
+            sortedSize--;
+            size--;
+            return;
+        }
+        for (int i = sortedSize; i < size; i++) {
+            if (byReleaseDate[i] == facets.dateKey()) {
+                byReleaseDate[i] = byReleaseDate[--size];
+                return;
+            }
+        }
+    }
+
+    // Сортирует хвост и сливает его с отсортированной частью за один проход
+    private void sortByReleaseDate() {
+        if (sortedSize == size) {
+            return;
+        }
+        Arrays.sort(byReleaseDate, sortedSize, size);
+        if (sortedSize > 0) {
+            long[] merged = new long[byReleaseDate.length];
+            int left = 0;
+            int right = sortedSize;
+            for (int i = 0; i < size; i++) {
+                if (right == size || left < sortedSize && byReleaseDate[left] < byReleaseDate[right]) {
+                    merged[i] = byReleaseDate[left++];
+                } else {
+                    merged[i] = byReleaseDate[right++];
+                }
+            }
+            byReleaseDate = merged;
+        }
+        sortedSize = size;
+    }
+
+    // Дата в старших 32 битах, id в младших: сортировка по ключу - по дате, затем по id
+    private static long dateKey(long epochDay, int filmId) {
+        return epochDay << 32 | filmId & 0xFFFFFFFFL;
+    }
+
+    private record Facets(int[] genreIds, Integer mpaId, long dateKey) {
+    }
+}
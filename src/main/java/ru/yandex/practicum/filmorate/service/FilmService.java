@@ -1,36 +1,80 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPage;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikePage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 
 @Service
 @Slf4j
 public class FilmService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final int MIN_YEAR = 1;
+    private static final int MAX_YEAR = 9999;
+    private static final Set<String> SEARCH_SORTS = Set.of("relevance", "popular", "date");
+
     private final FilmStorage filmStorage;
     private final UserService userService;
     private final MpaService mpaService;
     private final GenreService genreService;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final FilmTextIndex textIndex;
+    private final FilmCache filmCache;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final LikeMatrix likeMatrix;
+    private final EntityVersions versions;
 
     @Autowired
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage, UserService userService,
-                       MpaService mpaService, GenreService genreService) {
+                       MpaService mpaService, GenreService genreService, PopularityLeaderboard leaderboard,
+                       FilmSearchIndex searchIndex, FilmTextIndex textIndex, FilmCache filmCache,
+                       LikeWriteBuffer likeWriteBuffer, LikeMatrix likeMatrix, EntityVersions versions) {
         this.filmStorage = filmStorage;
         this.userService = userService;
         this.mpaService = mpaService;
         this.genreService = genreService;
+        this.leaderboard = leaderboard;
+        this.searchIndex = searchIndex;
+        this.textIndex = textIndex;
+        this.filmCache = filmCache;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.likeMatrix = likeMatrix;
+        this.versions = versions;
+    }
+
+    @PostConstruct
+    public void loadLeaderboard() {
+        leaderboard.load(filmStorage.getLikesCounts());
+        log.info("Рейтинг популярности загружен, фильмов: {}", leaderboard.size());
     }
 
     public Film addFilm(Film film) {
         validateFilmReferences(film);
-        return filmStorage.addFilm(film);
+        Film created = filmStorage.addFilm(film);
+        leaderboard.addFilm(created.getId());
+        searchIndex.put(created.getId(), created);
+        textIndex.put(created.getId(), created);
+        versions.filmChanged(created.getId());
+        return created;
     }
 
     private void validateFilmReferences(Film film) {
@@ -48,44 +92,184 @@ public class FilmService {
     }
 
     public Film updateFilm(Film film) {
-        if (filmStorage.getFilm(film.getId()) == null) {
-            throw new NotFoundException("Фильм с id =" + film.getId() + " не найден");
-        }
-        return filmStorage.updateFilm(film);
+        Film updated = filmStorage.updateFilm(film);
+        searchIndex.put(updated.getId(), updated);
+        textIndex.put(updated.getId(), updated);
+        filmCache.invalidate(film.getId());
+        versions.filmChanged(film.getId());
+        return updated;
     }
 
     public Film getFilm(Integer id) {
-        Film film = filmStorage.getFilm(id);
+        Film film = filmCache.get(id, filmStorage::getFilm);
         if (film == null) {
             throw new NotFoundException("Фильм с id =" + id + " не найден");
         }
         return film;
     }
 
-    public Collection<Film> getAllFilms() {
-        return filmStorage.getAllFilms();
+    public void checkFilmExists(Integer id) {
+        if (id == null || !filmStorage.existsById(id)) {
+            throw new NotFoundException("Фильм с id =" + id + " не найден");
+        }
     }
 
-    public void addLike(Integer filmId, Integer userId) {
-        Film film = getFilm(filmId);
-        userService.getUser(userId);
+    @Transactional(readOnly = true)
+    public Collection<Film> getAllFilms(FieldSet fields) {
+        return filmStorage.getAllFilms(fields);
+    }
 
-        filmStorage.addLike(filmId, userId);
+    public FilmPage getFilmsPage(Integer afterId, Integer limit) {
+        validatePage(afterId, limit);
+        return filmStorage.getFilmsPage(afterId, limit);
+    }
+
+    public LikePage getLikes(Integer filmId, Integer afterUserId, Integer limit) {
+        validatePage(afterUserId, limit);
+        checkFilmExists(filmId);
+        return filmStorage.getLikes(filmId, afterUserId, limit);
+    }
+
+    private void validatePage(Integer after, Integer limit) {
+        if (limit == null || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть в диапазоне от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (after != null && after < 0) {
+            throw new ValidationException("Параметр after не может быть отрицательным");
+        }
+    }
+
+    public void streamAllFilms(Consumer<List<Film>> chunkConsumer) {
+        filmStorage.streamAllFilms(STREAM_CHUNK_SIZE, chunkConsumer);
+    }
+
+    /**
+     * Ставит лайк. Возвращает future, который завершается, когда лайк записан в базу: сразу, а при
+     * отложенной записи - после сброса очереди {@link LikeWriteBuffer}.
+     */
+    public CompletableFuture<Void> addLike(Integer filmId, Integer userId) {
+        checkFilmExists(filmId);
+        userService.checkUserExists(userId);
+
+        CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        if (likeWriteBuffer.isEnabled()) {
+            written = likeWriteBuffer.submit(filmId, userId, true);
+        } else if (filmStorage.addLike(filmId, userId)) {
+            leaderboard.increment(filmId);
+            filmCache.likeAdded(filmId);
+            versions.filmChanged(filmId);
+        }
+        // Рекомендации, как и рейтинг в LikeWriteBuffer, обновляются только после записи лайка в базу
+        written.thenRun(() -> likeMatrix.like(userId, filmId));
 
         log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        return written;
     }
 
-    public void removeLike(Integer filmId, Integer userId) {
-        Film film = getFilm(filmId);
-        userService.getUser(userId);
+    public CompletableFuture<Void> removeLike(Integer filmId, Integer userId) {
+        checkFilmExists(filmId);
+        userService.checkUserExists(userId);
 
-        filmStorage.removeLike(filmId, userId);
+        CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        if (likeWriteBuffer.isEnabled()) {
+            written = likeWriteBuffer.submit(filmId, userId, false);
+        } else if (filmStorage.removeLike(filmId, userId)) {
+            leaderboard.decrement(filmId);
+            filmCache.likeRemoved(filmId);
+            versions.filmChanged(filmId);
+        }
+        written.thenRun(() -> likeMatrix.unlike(userId, filmId));
         log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+        return written;
+    }
+
+    public CacheStats getCacheStats() {
+        return filmCache.getStats();
     }
 
-    public List<Film> getPopularFilms(Integer count) {
+    @Transactional(readOnly = true)
+    public List<Film> getPopularFilms(Integer count, FieldSet fields) {
         int resultSize = count == null ? 10 : count;
+        if (resultSize <= 0) {
+            throw new ValidationException("Параметр count должен быть положительным");
+        }
+
+        return filmStorage.getFilmsByIds(leaderboard.top(resultSize), fields);
+    }
 
-        return filmStorage.getPopularFilms(resultSize);
+    /**
+     * Фильмы, подходящие под все условия: все слова запроса, любой из жанров, любой из рейтингов MPA
+     * и год выхода в диапазоне. Кандидаты выбираются по {@link FilmTextIndex} и {@link FilmSearchIndex},
+     * из базы читаются только найденные. С запросом по умолчанию сортируются по релевантности, без него -
+     * по популярности.
+     */
+    @Transactional(readOnly = true)
+    public List<Film> searchFilms(String query, List<Integer> genreIds, List<Integer> mpaIds, Integer yearFrom,
+                                  Integer yearTo, String sort, Integer count, FieldSet fields) {
+        if (count == null || count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр count должен быть в диапазоне от 1 до " + MAX_PAGE_SIZE);
+        }
+        validateYear("yearFrom", yearFrom);
+        validateYear("yearTo", yearTo);
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new ValidationException("Параметр yearFrom не может быть больше yearTo");
+        }
+
+        boolean hasQuery = query != null && !query.isBlank();
+        String order = sort != null ? sort : hasQuery ? "relevance" : "popular";
+        if (!SEARCH_SORTS.contains(order)) {
+            throw new ValidationException("Неизвестная сортировка: " + order
+                    + ", ожидается relevance, popular или date");
+        }
+        if (order.equals("relevance") && !hasQuery) {
+            throw new ValidationException("Сортировка relevance возможна только с параметром q");
+        }
+
+        RoaringBitmap matches = searchIndex.search(genreIds, mpaIds, yearFrom, yearTo);
+        if (hasQuery && !order.equals("relevance")) {
+            RoaringBitmap textMatches = textIndex.matching(query);
+            matches = matches == null ? textMatches : RoaringBitmap.and(matches, textMatches);
+        }
+        if (matches != null && matches.isEmpty()) {
+            return new ArrayList<>();
+        }
+        IntPredicate filter = matches == null ? filmId -> true : matches::contains;
+        List<Integer> ids = switch (order) {
+            case "relevance" -> textIndex.mostRelevant(query, matches, count);
+            case "popular" -> mostPopular(matches, count);
+            default -> searchIndex.newest(count, filter);
+        };
+        return filmStorage.getFilmsByIds(ids, fields);
+    }
+
+    private static void validateYear(String name, Integer year) {
+        if (year != null && (year < MIN_YEAR || year > MAX_YEAR)) {
+            throw new ValidationException("Параметр " + name + " должен быть в диапазоне от " + MIN_YEAR
+                    + " до " + MAX_YEAR);
+        }
+    }
+
+    // Обход рейтинга с пропуском неподходящих фильмов просматривает около count * N / M записей,
+    // сортировка найденных по лайкам - M log M. Для небольшой выборки сортировка дешевле
+    private List<Integer> mostPopular(RoaringBitmap matches, int count) {
+        if (matches == null) {
+            return leaderboard.top(count);
+        }
+        long found = matches.getCardinality();
+        if (found * found >= (long) count * leaderboard.size()) {
+            return leaderboard.top(count, matches::contains);
+        }
+        // Число лайков снимается один раз: в старших битах минус лайки, в младших id
+        long[] keys = new long[(int) found];
+        int i = 0;
+        for (int filmId : matches) {
+            keys[i++] = -(long) leaderboard.likes(filmId) << 32 | filmId;
+        }
+        Arrays.sort(keys);
+        List<Integer> ids = new ArrayList<>(Math.min(count, keys.length));
+        for (int j = 0; j < keys.length && ids.size() < count; j++) {
+            ids.add((int) keys[j]);
+        }
+        return ids;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,384 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FieldSet;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названиям и описаниям фильмов с ранжированием BM25.
+ * <p>
+ * Слова приводятся к нижнему регистру, «ё» заменяется на «е», разделителем служит всё, кроме букв
+ * и цифр, так что русский и английский текст разбираются одинаково. Для каждого слова хранится
+ * список фильмов: отсортированный {@code int[]} id и {@code byte[]} частот, вхождение в название
+ * весит {@value #NAME_WEIGHT}. Слово запроса от {@value #MIN_PREFIX_LENGTH} символов совпадает
+ * и со словами, которые с него начинаются (не больше {@value #MAX_EXPANSIONS} самых частых),
+ * но с меньшим весом. Фильм должен содержать каждое слово запроса.
+ * <p>
+ * Поиски идут параллельно под блокировкой чтения, изменения фильмов - под блокировкой записи.
+ */
+@Component
+@Slf4j
+public class FilmTextIndex {
+    private static final FieldSet TEXT = FieldSet.parse("name,description", Film.FIELDS);
+    private static final int NAME_WEIGHT = 2;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_EXPANSIONS = 32;
+    private static final float PREFIX_WEIGHT = 0.5f;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> dictionary = new TreeMap<>();
+    // По id фильма: списки, в которые он входит (для удаления при изменении), и длина текста с весами
+    private Postings[][] postingsByFilm = new Postings[16][];
+    private int[] lengthByFilm = new int[16];
+    private int films;
+    private long totalLength;
+
+    @Autowired
+    public FilmTextIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void load() {
+        Collection<Film> all = filmStorage.getAllFilms(TEXT);
+        all.forEach(film -> put(film.getId(), film));
+        log.info("Полнотекстовый индекс фильмов загружен, фильмов: {}, слов: {}", all.size(), terms());
+    }
+
+    /**
+     * Индексирует название и описание фильма, заменяя прежний текст.
+     */
+    public void put(int filmId, Film film) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTokens(frequencies, film.getName(), NAME_WEIGHT)
+                + addTokens(frequencies, film.getDescription(), 1);
+
+        lock.writeLock().lock();
+        try {
+            remove(filmId);
+            if (filmId >= postingsByFilm.length) {
+                int capacity = Math.max(filmId + 1, postingsByFilm.length * 2);
+                postingsByFilm = Arrays.copyOf(postingsByFilm, capacity);
+                lengthByFilm = Arrays.copyOf(lengthByFilm, capacity);
+            }
+            Postings[] filmPostings = new Postings[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings postings = dictionary.computeIfAbsent(entry.getKey(), Postings::new);
+                postings.add(filmId, entry.getValue());
+                filmPostings[i++] = postings;
+            }
+            postingsByFilm[filmId] = filmPostings;
+            lengthByFilm[filmId] = length;
+            films++;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return films;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id фильмов, содержащих все слова запроса.
+     */
+    public RoaringBitmap matching(String query) {
+        lock.readLock().lock();
+        try {
+            List<List<Postings>> expanded = expand(query);
+            return expanded == null ? new RoaringBitmap() : candidates(expanded, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * До {@code count} подходящих под запрос фильмов по убыванию BM25, при равенстве - по id.
+     * {@code filter} ограничивает выборку, {@code null} - без ограничений.
+     */
+    public List<Integer> mostRelevant(String query, RoaringBitmap filter, int count) {
+        lock.readLock().lock();
+        try {
+            List<List<Postings>> expanded = expand(query);
+            if (expanded == null) {
+                return new ArrayList<>();
+            }
+            int[] candidates = candidates(expanded, filter).toArray();
+            if (candidates.length == 0) {
+                return new ArrayList<>();
+            }
+
+            float[] scores = new float[candidates.length];
+            float averageLength = (float) totalLength / films;
+            List<String> tokens = tokenize(query);
+            for (int t = 0; t < expanded.size(); t++) {
+                for (Postings postings : expanded.get(t)) {
+                    float weight = postings.term.equals(tokens.get(t)) ? 1 : PREFIX_WEIGHT;
+                    score(postings, candidates, scores, weight * idf(postings.size), averageLength);
+                }
+            }
+            return top(candidates, scores, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                token.append(c == 'ё' ? 'е' : c);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static int addTokens(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> tokens = tokenize(text);
+        tokens.forEach(token -> frequencies.merge(token, weight, Integer::sum));
+        return tokens.size() * weight;
+    }
+
+    // Для каждого слова запроса - списки совпавших с ним слов словаря, null - если какое-то не нашлось
+    private List<List<Postings>> expand(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        List<List<Postings>> expanded = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            List<Postings> matches = new ArrayList<>();
+            if (token.length() < MIN_PREFIX_LENGTH) {
+                Postings exact = dictionary.get(token);
+                if (exact != null) {
+                    matches.add(exact);
+                }
+            } else {
+                matches.addAll(dictionary.subMap(token, true, token + Character.MAX_VALUE, false).values());
+                if (matches.size() > MAX_EXPANSIONS) {
+                    Postings exact = dictionary.get(token);
+                    matches.sort(Comparator.comparingInt((Postings postings) -> postings.size).reversed());
+                    matches = new ArrayList<>(matches.subList(0, MAX_EXPANSIONS));
+                    if (exact != null && !matches.contains(exact)) {
+                        matches.set(MAX_EXPANSIONS - 1, exact);
+                    }
+                }
+            }
+            if (matches.isEmpty()) {
+                return null;
+            }
+            expanded.add(matches);
+        }
+        return expanded;
+    }
+
+    private static RoaringBitmap candidates(List<List<Postings>> expanded, RoaringBitmap filter) {
+        List<RoaringBitmap> conditions = new ArrayList<>(expanded.size() + 1);
+        for (List<Postings> matches : expanded) {
+            List<RoaringBitmap> bitmaps = new ArrayList<>(matches.size());
+            for (Postings postings : matches) {
+                RoaringBitmap bitmap = new RoaringBitmap();
+                bitmap.addN(postings.filmIds, 0, postings.size);
+                bitmaps.add(bitmap);
+            }
+            conditions.add(bitmaps.size() == 1 ? bitmaps.get(0) : FastAggregation.or(bitmaps.iterator()));
+        }
+        if (filter != null) {
+            conditions.add(filter);
+        }
+        conditions.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        RoaringBitmap result = conditions.get(0).clone();
+        for (int i = 1; i < conditions.size() && !result.isEmpty(); i++) {
+            result.and(conditions.get(i));
+        }
+        return result;
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (films - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    // Оба массива отсортированы: короткий список ищется в кандидатах двоичным поиском, длинный - слиянием
+    private void score(Postings postings, int[] candidates, float[] scores, float idf, float averageLength) {
+        boolean merge = (long) postings.size * 8 > candidates.length;
+        int position = 0;
+        for (int i = 0; i < postings.size && position < candidates.length; i++) {
+            int filmId = postings.filmIds[i];
+            if (merge) {
+                while (position < candidates.length && candidates[position] < filmId) {
+                    position++;
+                }
+                if (position == candidates.length || candidates[position] != filmId) {
+                    continue;
+                }
+            } else {
+                int found = Arrays.binarySearch(candidates, position, candidates.length, filmId);
+                if (found < 0) {
+                    position = -found - 1;
+                    continue;
+                }
+                position = found;
+            }
+            float frequency = postings.frequencies[i];
+            float norm = K1 * (1 - B + B * lengthByFilm[filmId] / averageLength);
+            scores[position] += idf * frequency * (K1 + 1) / (frequency + norm);
+            position++;
+        }
+    }
+
+    // Отбор лучших count кучей: ключ - инвертированные биты счёта в старшей половине и id в младшей,
+    // меньший ключ - более релевантный фильм
+    private static List<Integer> top(int[] candidates, float[] scores, int count) {
+        int size = Math.min(count, candidates.length);
+        long[] heap = new long[size];
+        int filled = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            long key = (long) (Integer.MAX_VALUE - Float.floatToIntBits(scores[i])) << 32 | candidates[i];
+            if (filled < size) {
+                heap[filled] = key;
+                siftUp(heap, filled++);
+            } else if (key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap);
+        List<Integer> result = new ArrayList<>(size);
+        for (long key : heap) {
+            result.add((int) key);
+        }
+        return result;
+    }
+
+    // Куча с наибольшим ключом в корне
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] >= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) {
+                largest = left;
+            }
+            if (right < size && heap[right] > heap[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(heap, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(long[] heap, int i, int j) {
+        long value = heap[i];
+        heap[i] = heap[j];
+        heap[j] = value;
+    }
+
+    private void remove(int filmId) {
+        if (filmId >= postingsByFilm.length || postingsByFilm[filmId] == null) {
+            return;
+        }
+        for (Postings postings : postingsByFilm[filmId]) {
+            postings.remove(filmId);
+            if (postings.size == 0) {
+                dictionary.remove(postings.term);
+            }
+        }
+        postingsByFilm[filmId] = null;
+        films--;
+        totalLength -= lengthByFilm[filmId];
+        lengthByFilm[filmId] = 0;
+    }
+
+    /**
+     * Фильмы со словом {@link #term}: id по возрастанию и частота слова (до 127) в том же порядке.
+     */
+    private static final class Postings {
+        private final String term;
+        private int[] filmIds = new int[2];
+        private byte[] frequencies = new byte[2];
+        private int size;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        private void add(int filmId, int frequency) {
+            if (size == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            // Новые фильмы получают больший id, поэтому почти всегда это запись в конец
+            int position = size == 0 || filmIds[size - 1] < filmId ? size
+                    : -Arrays.binarySearch(filmIds, 0, size, filmId) - 1;
+            System.arraycopy(filmIds, position, filmIds, position + 1, size - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            filmIds[position] = filmId;
+            frequencies[position] = (byte) Math.min(frequency, Byte.MAX_VALUE);
+            size++;
+        }
+
+        private void remove(int filmId) {
+            int position = Arrays.binarySearch(filmIds, 0, size, filmId);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(filmIds, position + 1, filmIds, position, size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рекомендации друзей: пользователи, которые не в друзьях, упорядоченные по числу общих друзей.
+ * <p>
+ * Общие друзья считаются так же, как в {@link FriendshipGraph#commonFriends}: друзья пользователя, у которых
+ * в друзьях и кандидат. Обход идёт от друзей пользователя по обратным спискам {@link FriendshipGraph#followers},
+ * на каждом шаге берётся не больше {@code filmorate.suggestions.max-fanout} соседей (равномерной выборкой
+ * по отсортированному списку).
+ * Для пользователей с числом друзей от {@code heavy-user-threshold} результат заранее считается в фоне
+ * и при запросе только фильтруется от тех, кто успел стать другом.
+ */
+@Component
+@Slf4j
+public class FriendSuggestions {
+    private final FriendshipGraph graph;
+    private final int maxFanout;
+    private final int heavyUserThreshold;
+    private final int precomputedSize;
+    private final Map<Integer, int[]> precomputed = new ConcurrentHashMap<>();
+
+    public FriendSuggestions(FriendshipGraph graph,
+                             @Value("${filmorate.suggestions.max-fanout:1000}") int maxFanout,
+                             @Value("${filmorate.suggestions.heavy-user-threshold:1000}") int heavyUserThreshold,
+                             @Value("${filmorate.suggestions.precomputed-size:100}") int precomputedSize) {
+        this.graph = graph;
+        this.maxFanout = maxFanout;
+        this.heavyUserThreshold = heavyUserThreshold;
+        this.precomputedSize = precomputedSize;
+    }
+
+    public int[] suggest(int userId, int limit) {
+        int[] friends = graph.friends(userId);
+        int[] cached = precomputed.get(userId);
+        if (cached != null && limit <= precomputedSize) {
+            int[] result = new int[Math.min(limit, cached.length)];
+            int count = 0;
+            for (int i = 0; i < cached.length && count < result.length; i++) {
+                if (Arrays.binarySearch(friends, cached[i]) < 0) {
+                    result[count++] = cached[i];
+                }
+            }
+            if (count == result.length || cached.length < precomputedSize) {
+                return Arrays.copyOf(result, count);
+            }
+        }
+        return compute(userId, friends, limit);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.suggestions.refresh-ms:60000}")
+    public void precomputeHeavyUsers() {
+        int refreshed = 0;
+        for (Integer userId : graph.userIds()) {
+            int[] friends = graph.friends(userId);
+            if (friends.length >= heavyUserThreshold) {
+                precomputed.put(userId, compute(userId, friends, precomputedSize));
+                refreshed++;
+            }
+        }
+        precomputed.keySet().removeIf(userId -> graph.friends(userId).length < heavyUserThreshold);
+        if (refreshed > 0) {
+            log.debug("Пересчитаны рекомендации друзей для {} пользователей", refreshed);
+        }
+    }
+
+    private int[] compute(int userId, int[] friends, int limit) {
+        // Кандидат c получает по единице за каждого друга f, у которого есть ребро c→f, - это те же общие
+        // друзья, что отдаёт GET /users/{id}/friends/common/{otherId}
+        IntCountMap mutualCounts = new IntCountMap(Math.min(friends.length, maxFanout) * 16);
+        int firstStep = step(friends.length);
+        for (int i = 0; i < friends.length; i += firstStep) {
+            int[] followers = graph.followers(friends[i]);
+            int secondStep = step(followers.length);
+            for (int j = 0; j < followers.length; j += secondStep) {
+                int candidate = followers[j];
+                if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                    mutualCounts.increment(candidate);
+                }
+            }
+        }
+
+        // Ключ: инвертированное число общих друзей в старших битах и id в младших, меньший ключ - лучший кандидат
+        TopKeys top = new TopKeys(limit);
+        mutualCounts.forEach((candidate, count) -> top.offer((long) (Integer.MAX_VALUE - count) << 32 | candidate));
+
+        long[] keys = top.sorted();
+        int[] result = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = (int) keys[i];
+        }
+        return result;
+    }
+
+    private int step(int length) {
+        return length <= maxFanout ? 1 : (length + maxFanout - 1) / maxFanout;
+    }
+}
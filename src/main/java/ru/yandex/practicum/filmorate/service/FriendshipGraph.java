@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя отсортированный массив id друзей и обратный список -
+ * отсортированный массив id тех, у кого он в друзьях. Дружба направленная, поэтому общие друзья
+ * пользователей u и c - это f, для которых есть рёбра u→f и c→f, а кандидатов с общими друзьями дают
+ * обратные списки друзей u.
+ * <p>
+ * Массивы не изменяются после публикации, добавление и удаление друга заменяют массив пользователя
+ * внутри {@link ConcurrentHashMap#compute}, поэтому читатели всегда видят целостный список без блокировок.
+ * Статус дружбы в графе не хранится: подтверждение не меняет состав друзей.
+ */
+@Component
+public class FriendshipGraph {
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final Map<Integer, int[]> adjacency = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> reverseAdjacency = new ConcurrentHashMap<>();
+
+    public void load(Map<Integer, int[]> friendsByUser) {
+        adjacency.clear();
+        reverseAdjacency.clear();
+        Map<Integer, List<Integer>> followers = new HashMap<>();
+        friendsByUser.forEach((userId, friendIds) -> {
+            int[] sorted = friendIds.clone();
+            Arrays.sort(sorted);
+            adjacency.put(userId, sorted);
+            for (int friendId : sorted) {
+                followers.computeIfAbsent(friendId, id -> new ArrayList<>()).add(userId);
+            }
+        });
+        followers.forEach((friendId, userIds) -> {
+            int[] sorted = userIds.stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(sorted);
+            reverseAdjacency.put(friendId, sorted);
+        });
+    }
+
+    public void addFriend(int userId, int friendId) {
+        adjacency.compute(userId, (id, friends) -> insert(friends, friendId));
+        reverseAdjacency.compute(friendId, (id, followers) -> insert(followers, userId));
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        adjacency.computeIfPresent(userId, (id, friends) -> delete(friends, friendId));
+        reverseAdjacency.computeIfPresent(friendId, (id, followers) -> delete(followers, userId));
+    }
+
+    private static int[] insert(int[] sorted, int value) {
+        int[] current = sorted == null ? NO_FRIENDS : sorted;
+        int position = Arrays.binarySearch(current, value);
+        if (position >= 0) {
+            return current;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = value;
+        System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+        return updated;
+    }
+
+    private static int[] delete(int[] sorted, int value) {
+        int position = Arrays.binarySearch(sorted, value);
+        if (position < 0) {
+            return sorted;
+        }
+        if (sorted.length == 1) {
+            return null;
+        }
+        int[] updated = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, updated, 0, position);
+        System.arraycopy(sorted, position + 1, updated, position, sorted.length - position - 1);
+        return updated;
+    }
+
+    /**
+     * Отсортированные id друзей пользователя. Возвращается внутренний массив, изменять его нельзя.
+     */
+    public int[] friends(int userId) {
+        return adjacency.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    /**
+     * Отсортированные id пользователей, у которых {@code userId} в друзьях. Возвращается внутренний массив,
+     * изменять его нельзя.
+     */
+    public int[] followers(int userId) {
+        return reverseAdjacency.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    public int[] commonFriends(int userId, int otherId) {
+        int[] first = friends(userId);
+        int[] second = friends(otherId);
+        int[] common = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    public Set<Integer> userIds() {
+        return adjacency.keySet();
+    }
+
+    public int size() {
+        return adjacency.size();
+    }
+}
@@ -1,22 +1,48 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
 import java.util.List;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class GenreService {
     private final GenreStorage genreStorage;
+    private final EntityVersions versions;
+    private volatile ReferenceSnapshot<Genre> genres;
+
+    // Из @PostConstruct метод вызывается мимо прокси, поэтому @Transactional здесь не работал бы:
+    // справочник читается одним запросом из основной базы
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.reference-cache.refresh-ms:600000}",
+            initialDelayString = "${filmorate.reference-cache.refresh-ms:600000}")
+    public void refresh() {
+        ReferenceSnapshot<Genre> refreshed = ReferenceSnapshot.of(genreStorage.getAllGenres(), Genre::getId);
+        boolean changed = genres == null || !genres.all().equals(refreshed.all());
+        genres = refreshed;
+        if (changed) {
+            versions.genresChanged();
+        }
+        log.debug("Справочник жанров обновлён, записей: {}", genres.all().size());
+    }
 
     public List<Genre> getAllGenres() {
-        return genreStorage.getAllGenres();
+        return genres.all();
     }
 
     public Genre getGenreById(Integer id) {
-        return genreStorage.getGenre(id);
+        Genre genre = genres.get(id);
+        if (genre == null) {
+            throw new NotFoundException("Жанр с id=" + id + " не найден");
+        }
+        return genre;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationStatus;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронные лайки: запрос только проверяет параметры, ставит операцию в журнал и сразу отвечает 202.
+ * <p>
+ * Журнал разбит на разделы по {@code filmId}, каждый раздел разбирает один поток, поэтому операции
+ * над одним фильмом применяются в порядке поступления, а над разными - параллельно. Применение идёт
+ * через обычные {@link FilmService#addLike}/{@link FilmService#removeLike} со всеми проверками;
+ * их результат сохраняется в операции и доступен по её id. При отложенной записи лайков операция
+ * становится {@code APPLIED} или {@code FAILED} только после записи в базу. Хранятся последние
+ * {@code filmorate.likes.async.retained-operations} операций.
+ */
+@Component
+@Slf4j
+public class LikeEventLog {
+    private final FilmService filmService;
+    private final ThreadPoolExecutor[] partitions;
+    private final int retainedOperations;
+    private final AtomicLong operationId = new AtomicLong();
+    private final Map<Long, LikeOperation> operations = new ConcurrentHashMap<>();
+    private final Queue<Long> operationOrder = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public LikeEventLog(FilmService filmService,
+                        @Value("${filmorate.likes.async.partitions:4}") int partitionCount,
+                        @Value("${filmorate.likes.async.capacity:10000}") int capacity,
+                        @Value("${filmorate.likes.async.retained-operations:100000}") int retainedOperations) {
+        this.filmService = filmService;
+        this.retainedOperations = retainedOperations;
+        this.partitions = new ThreadPoolExecutor[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            int number = i;
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity), runnable -> {
+                        Thread thread = new Thread(runnable, "like-events-" + number);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    public LikeOperation submit(Integer filmId, Integer userId, boolean like) {
+        if (filmId == null || filmId <= 0 || userId == null || userId <= 0) {
+            throw new ValidationException("Идентификаторы фильма и пользователя должны быть положительными");
+        }
+        LikeOperation operation = LikeOperation.builder()
+                .id(operationId.incrementAndGet())
+                .filmId(filmId)
+                .userId(userId)
+                .like(like)
+                .status(LikeOperationStatus.PENDING)
+                .acceptedAt(LocalDateTime.now())
+                .build();
+        operations.put(operation.getId(), operation);
+        try {
+            partitions[filmId % partitions.length].execute(() -> apply(operation));
+        } catch (RejectedExecutionException e) {
+            operations.remove(operation.getId());
+            throw new OverloadedException("Очередь лайков переполнена, повторите запрос позже");
+        }
+        operationOrder.add(operation.getId());
+        evictOldOperations();
+        return operation;
+    }
+
+    public LikeOperation getOperation(Long id) {
+        LikeOperation operation = operations.get(id);
+        if (operation == null) {
+            throw new NotFoundException("Операция с id=" + id + " не найдена");
+        }
+        return operation;
+    }
+
+    private void apply(LikeOperation operation) {
+        CompletableFuture<Void> written;
+        try {
+            written = operation.isLike()
+                    ? filmService.addLike(operation.getFilmId(), operation.getUserId())
+                    : filmService.removeLike(operation.getFilmId(), operation.getUserId());
+        } catch (RuntimeException e) {
+            complete(operation, e);
+            return;
+        }
+        // При отложенной записи операция остаётся PENDING до сброса очереди лайков в базу
+        written.whenComplete((ignored, e) -> complete(operation, e));
+    }
+
+    private void complete(LikeOperation operation, Throwable error) {
+        LikeOperation.LikeOperationBuilder result = operation.toBuilder();
+        if (error == null) {
+            result.status(LikeOperationStatus.APPLIED);
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            log.debug("Операция {} не применена: {}", operation.getId(), cause.getMessage());
+            result.status(LikeOperationStatus.FAILED).error(cause.getMessage());
+        }
+        // Операция могла быть вытеснена, пока ждала в очереди
+        operations.replace(operation.getId(), result.completedAt(LocalDateTime.now()).build());
+    }
+
+    // Вытеснение из многих потоков запросов сериализовано, иначе параллельные проверки размера
+    // удалили бы больше операций, чем нужно
+    private synchronized void evictOldOperations() {
+        while (operations.size() > retainedOperations) {
+            Long oldest = operationOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            operations.remove(oldest);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+        for (ThreadPoolExecutor partition : partitions) {
+            if (!partition.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Не все асинхронные лайки применены до остановки: {}", partition.getQueue().size());
+            }
+        }
+    }
+}
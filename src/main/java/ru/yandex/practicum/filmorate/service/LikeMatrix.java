@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Разреженная матрица «пользователь × фильм» для рекомендаций: по каждому пользователю
+ * отсортированный массив id понравившихся фильмов.
+ * <p>
+ * Матрица целиком перестраивается из {@code film_likes} в фоне по расписанию, а между перестройками
+ * дополняется лайками из {@link FilmService}. Изменения, пришедшие во время перестройки, пишутся
+ * в журнал и повторяются поверх новой матрицы, чтобы не потеряться при её подмене.
+ */
+@Component
+@Slf4j
+public class LikeMatrix {
+    private static final int[] NO_LIKES = new int[0];
+
+    private final FilmStorage filmStorage;
+    private volatile Map<Integer, int[]> likesByUser = new ConcurrentHashMap<>();
+    private List<Change> changesDuringRebuild;
+
+    @Autowired
+    public LikeMatrix(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${filmorate.recommendations.rebuild-ms:600000}")
+    public void rebuild() {
+        synchronized (this) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        Map<Integer, int[]> rebuilt = new ConcurrentHashMap<>();
+        try {
+            filmStorage.getLikedFilmIdsByUser().forEach((userId, filmIds) -> {
+                int[] sorted = filmIds.clone();
+                Arrays.sort(sorted);
+                rebuilt.put(userId, sorted);
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            changesDuringRebuild.forEach(change -> apply(rebuilt, change));
+            changesDuringRebuild = null;
+            likesByUser = rebuilt;
+        }
+        log.debug("Матрица лайков перестроена, пользователей: {}", rebuilt.size());
+    }
+
+    public synchronized void like(int userId, int filmId) {
+        record(new Change(userId, filmId, true));
+    }
+
+    public synchronized void unlike(int userId, int filmId) {
+        record(new Change(userId, filmId, false));
+    }
+
+    public int[] likes(int userId) {
+        return likesByUser.getOrDefault(userId, NO_LIKES);
+    }
+
+    public Map<Integer, int[]> snapshot() {
+        return Collections.unmodifiableMap(likesByUser);
+    }
+
+    private void record(Change change) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+        apply(likesByUser, change);
+    }
+
+    private static void apply(Map<Integer, int[]> matrix, Change change) {
+        matrix.compute(change.userId(), (id, current) -> {
+            int[] filmIds = current == null ? NO_LIKES : current;
+            int position = Arrays.binarySearch(filmIds, change.filmId());
+            if (change.liked() == position >= 0) {
+                return current;
+            }
+            if (change.liked()) {
+                int insertAt = -position - 1;
+                int[] updated = new int[filmIds.length + 1];
+                System.arraycopy(filmIds, 0, updated, 0, insertAt);
+                updated[insertAt] = change.filmId();
+                System.arraycopy(filmIds, insertAt, updated, insertAt + 1, filmIds.length - insertAt);
+                return updated;
+            }
+            if (filmIds.length == 1) {
+                return null;
+            }
+            int[] updated = new int[filmIds.length - 1];
+            System.arraycopy(filmIds, 0, updated, 0, position);
+            System.arraycopy(filmIds, position + 1, updated, position, filmIds.length - position - 1);
+            return updated;
+        });
+    }
+
+    private record Change(int userId, int filmId, boolean liked) {
+    }
+}
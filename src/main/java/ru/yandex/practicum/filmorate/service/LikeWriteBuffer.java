@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeChange;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Отложенная запись лайков. Лайки и их отмены копятся в ограниченной очереди, где по паре
+ * (фильм, пользователь) остаётся только последнее действие, и раз в несколько миллисекунд
+ * сбрасываются в {@code film_likes} пачками MERGE/DELETE.
+ * <p>
+ * Если очередь заполнена, {@link #submit} ждёт освобождения места не дольше
+ * {@code filmorate.likes.write-behind.offer-timeout-ms} и затем отвечает {@link OverloadedException}.
+ * Если пачка не записалась, изменения записываются по одному: ошибочные отбрасываются с записью в лог,
+ * остальные при недоступной базе возвращаются в очередь. При остановке приложения остаток очереди
+ * записывается синхронно.
+ */
+@Component
+@Slf4j
+public class LikeWriteBuffer {
+    private final FilmStorage filmStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmCache filmCache;
+    private final EntityVersions versions;
+    private final boolean enabled;
+    private final int capacity;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final Map<Long, PendingChange> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+    private final LongAdder rejected = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public LikeWriteBuffer(@Qualifier("filmDbStorage") FilmStorage filmStorage, PopularityLeaderboard leaderboard,
+                           FilmCache filmCache, EntityVersions versions,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.capacity:100000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.flush-interval-ms:5}") long flushIntervalMs,
+                           @Value("${filmorate.likes.write-behind.offer-timeout-ms:1000}") long offerTimeoutMs) {
+        this.filmStorage = filmStorage;
+        this.leaderboard = leaderboard;
+        this.filmCache = filmCache;
+        this.versions = versions;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Отложенная запись лайков включена: ёмкость {}, период {} мс", capacity, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        int flushed = flush();
+        if (flushed > 0) {
+            log.info("При остановке записано отложенных лайков: {}", flushed);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ставит изменение в очередь. Возвращённый future завершается, когда изменение записано в базу (или
+     * вытеснено более поздним изменением той же пары, записанным в базу), и завершается с ошибкой, если
+     * изменение отброшено как ошибочное.
+     */
+    public CompletableFuture<Void> submit(int filmId, int userId, boolean liked) {
+        long key = key(filmId, userId);
+        LikeChange change = new LikeChange(filmId, userId, liked);
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        synchronized (pending) {
+            while (pending.size() >= capacity && !pending.containsKey(key)) {
+                long waitMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (waitMs <= 0) {
+                    throw new OverloadedException("Очередь лайков переполнена, повторите запрос позже");
+                }
+                try {
+                    pending.wait(waitMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OverloadedException("Ожидание места в очереди лайков прервано");
+                }
+            }
+            PendingChange previous = pending.remove(key);
+            pending.put(key, new PendingChange(change, List.of(written)).after(previous));
+        }
+        return written;
+    }
+
+    public int pendingSize() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public int flush() {
+        synchronized (flushLock) {
+            List<PendingChange> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+                pending.notifyAll();
+            }
+
+            try {
+                applied(filmStorage.applyLikeChanges(batch.stream().map(PendingChange::change).toList()));
+                batch.forEach(PendingChange::complete);
+            } catch (RuntimeException e) {
+                log.warn("Пачка из {} отложенных лайков не записана, запись по одному", batch.size(), e);
+                applyOneByOne(batch);
+            }
+            return batch.size();
+        }
+    }
+
+    /**
+     * Записывает изменения по одному, чтобы одно ошибочное (например, лайк удалённого фильма) не блокировало
+     * остальные. Ошибочное изменение повторять бессмысленно: оно пишется в лог и отбрасывается. При любой
+     * другой ошибке (база недоступна) это изменение и все следующие возвращаются в очередь.
+     */
+    private void applyOneByOne(List<PendingChange> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            PendingChange pendingChange = batch.get(i);
+            try {
+                applied(filmStorage.applyLikeChanges(List.of(pendingChange.change())));
+                pendingChange.complete();
+            } catch (DataIntegrityViolationException | NotFoundException e) {
+                rejected.increment();
+                log.error("Отложенный лайк отброшен: {}", pendingChange.change(), e);
+                pendingChange.fail(e);
+            } catch (RuntimeException e) {
+                requeue(batch.subList(i, batch.size()));
+                throw e;
+            }
+        }
+    }
+
+    private void applied(Map<Integer, Integer> likesCounts) {
+        likesCounts.forEach((filmId, likes) -> {
+            leaderboard.setLikes(filmId, likes);
+            filmCache.invalidate(filmId);
+            versions.filmChanged(filmId);
+        });
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать отложенные лайки, повтор при следующем сбросе", e);
+        }
+    }
+
+    private void requeue(List<PendingChange> batch) {
+        synchronized (pending) {
+            Map<Long, PendingChange> newer = new LinkedHashMap<>(pending);
+            pending.clear();
+            for (PendingChange pendingChange : batch) {
+                pending.put(key(pendingChange.change().filmId(), pendingChange.change().userId()), pendingChange);
+            }
+            newer.forEach((key, latest) -> pending.merge(key, latest, (older, ignored) -> latest.after(older)));
+        }
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Последнее изменение пары (фильм, пользователь) и ожидающие записи все поставленные для неё изменения.
+     */
+    private record PendingChange(LikeChange change, List<CompletableFuture<Void>> waiters) {
+        PendingChange after(PendingChange previous) {
+            if (previous == null) {
+                return this;
+            }
+            List<CompletableFuture<Void>> merged = new ArrayList<>(previous.waiters());
+            merged.addAll(waiters);
+            return new PendingChange(change, merged);
+        }
+
+        void complete() {
+            waiters.forEach(waiter -> waiter.complete(null));
+        }
+
+        void fail(RuntimeException e) {
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+        }
+    }
+}
@@ -1,22 +1,48 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
 import java.util.List;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class MpaService {
     private final MpaStorage mpaStorage;
+    private final EntityVersions versions;
+    private volatile ReferenceSnapshot<MpaRating> mpaRatings;
+
+    // Из @PostConstruct метод вызывается мимо прокси, поэтому @Transactional здесь не работал бы:
+    // справочник читается одним запросом из основной базы
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.reference-cache.refresh-ms:600000}",
+            initialDelayString = "${filmorate.reference-cache.refresh-ms:600000}")
+    public void refresh() {
+        ReferenceSnapshot<MpaRating> refreshed = ReferenceSnapshot.of(mpaStorage.getAllMpaRatings(), MpaRating::getId);
+        boolean changed = mpaRatings == null || !mpaRatings.all().equals(refreshed.all());
+        mpaRatings = refreshed;
+        if (changed) {
+            versions.mpaChanged();
+        }
+        log.debug("Справочник рейтингов MPA обновлён, записей: {}", mpaRatings.all().size());
+    }
 
     public List<MpaRating> getAllMpaRatings() {
-        return mpaStorage.getAllMpaRatings();
+        return mpaRatings.all();
     }
 
     public MpaRating getMpaRatingById(Integer id) {
-        return mpaStorage.getMpaRating(id);
+        MpaRating mpaRating = mpaRatings.get(id);
+        if (mpaRating == null) {
+            throw new NotFoundException("Рейтинг MPA с id =" + id + " не найден");
+        }
+        return mpaRating;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Рейтинг фильмов по числу лайков, который обновляется по одному лайку, а не пересортировывается.
+ * <p>
+ * Счётчик каждого фильма меняется внутри {@link ConcurrentHashMap#compute}, поэтому изменения одного
+ * фильма упорядочены, а разные фильмы обновляются независимо. Порядок хранится в
+ * {@link ConcurrentSkipListSet}, так что первые N фильмов читаются без сортировки и блокировок.
+ * Чтение слабо согласовано: во время обновления фильм может на мгновение встретиться дважды,
+ * дубликаты отбрасываются в {@link #top(int)}.
+ */
+@Component
+public class PopularityLeaderboard {
+    private static final Comparator<Entry> BY_LIKES_DESC = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingInt(Entry::filmId);
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_LIKES_DESC);
+
+    public void load(Map<Integer, Integer> likesByFilm) {
+        entries.clear();
+        ranking.clear();
+        likesByFilm.forEach(this::setLikes);
+    }
+
+    public void addFilm(int filmId) {
+        entries.computeIfAbsent(filmId, id -> {
+            Entry entry = new Entry(id, 0);
+            ranking.add(entry);
+            return entry;
+        });
+    }
+
+    public void increment(int filmId) {
+        adjust(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        adjust(filmId, -1);
+    }
+
+    public void setLikes(int filmId, int likes) {
+        entries.compute(filmId, (id, current) -> replace(current, new Entry(id, likes)));
+    }
+
+    public List<Integer> top(int count) {
+        return top(count, filmId -> true);
+    }
+
+    /**
+     * Первые {@code count} фильмов рейтинга среди подходящих под фильтр.
+     */
+    public List<Integer> top(int count, IntPredicate filter) {
+        List<Integer> result = new ArrayList<>(count);
+        Set<Integer> seen = new HashSet<>();
+        Iterator<Entry> iterator = ranking.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            int filmId = iterator.next().filmId();
+            if (filter.test(filmId) && seen.add(filmId)) {
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    public int likes(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void adjust(int filmId, int delta) {
+        entries.compute(filmId, (id, current) -> {
+            int likes = current == null ? 0 : current.likes();
+            return replace(current, new Entry(id, Math.max(0, likes + delta)));
+        });
+    }
+
+    // Сначала добавляем новую запись, потом удаляем старую, чтобы фильм не пропадал из рейтинга
+    private Entry replace(Entry current, Entry updated) {
+        ranking.add(updated);
+        if (current != null && !current.equals(updated)) {
+            ranking.remove(current);
+        }
+        return updated;
+    }
+
+    private record Entry(int filmId, int likes) {
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Рекомендации фильмов коллаборативной фильтрацией по лайкам. Похожесть пользователей считается
+ * как коэффициент Жаккара по множествам лайков, параллельно на отдельном {@link ForkJoinPool}.
+ * Рекомендуются фильмы ближайших соседей, которые пользователь ещё не лайкал, с весом,
+ * равным сумме похожестей соседей, лайкнувших фильм.
+ */
+@Service
+@Slf4j
+public class RecommendationService {
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 100;
+    private final LikeMatrix likeMatrix;
+    private final FilmStorage filmStorage;
+    private final UserService userService;
+    private final ForkJoinPool pool;
+    private final int neighbours;
+
+    @Autowired
+    public RecommendationService(LikeMatrix likeMatrix, @Qualifier("filmDbStorage") FilmStorage filmStorage,
+                                 UserService userService,
+                                 @Value("${filmorate.recommendations.parallelism:0}") int parallelism,
+                                 @Value("${filmorate.recommendations.neighbours:20}") int neighbours) {
+        this.likeMatrix = likeMatrix;
+        this.filmStorage = filmStorage;
+        this.userService = userService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.neighbours = neighbours;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public List<Film> getRecommendations(Integer userId, Integer limit) {
+        int resultSize = limit == null ? DEFAULT_LIMIT : limit;
+        if (resultSize <= 0 || resultSize > MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть в диапазоне от 1 до " + MAX_LIMIT);
+        }
+        userService.checkUserExists(userId);
+
+        return filmStorage.getFilmsByIds(recommend(userId, resultSize));
+    }
+
+    List<Integer> recommend(int userId, int limit) {
+        int[] ownLikes = likeMatrix.likes(userId);
+        if (ownLikes.length == 0) {
+            return List.of();
+        }
+
+        // Ближайшие соседи отбираются кучами по частям потока, которые затем сливаются; похожесть в ключе
+        // огрублена до float, для весов фильмов она считается заново точно
+        Map<Integer, int[]> likesByUser = likeMatrix.snapshot();
+        TopKeys nearest = pool.submit(() -> likesByUser.entrySet().parallelStream()
+                .filter(entry -> entry.getKey() != userId)
+                .collect(() -> new TopKeys(neighbours), (top, entry) -> {
+                    double similarity = jaccard(ownLikes, entry.getValue());
+                    if (similarity > 0) {
+                        top.offer(rankKey(similarity, entry.getKey()));
+                    }
+                }, TopKeys::offerAll)).join();
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (long key : nearest.sorted()) {
+            int[] likes = likesByUser.getOrDefault((int) key, new int[0]);
+            double similarity = jaccard(ownLikes, likes);
+            for (int filmId : likes) {
+                if (Arrays.binarySearch(ownLikes, filmId) < 0) {
+                    scores.merge(filmId, similarity, Double::sum);
+                }
+            }
+        }
+
+        TopKeys best = new TopKeys(limit);
+        scores.forEach((filmId, score) -> best.offer(rankKey(score, filmId)));
+        List<Integer> result = new ArrayList<>(limit);
+        for (long key : best.sorted()) {
+            result.add((int) key);
+        }
+        return result;
+    }
+
+    // Ключ кучи: инвертированные биты неотрицательного значения в старшей половине и id в младшей,
+    // меньший ключ - большее значение, при равенстве - меньший id
+    private static long rankKey(double value, int id) {
+        return (long) (Integer.MAX_VALUE - Float.floatToIntBits((float) value)) << 32 | id;
+    }
+
+    private static double jaccard(int[] first, int[] second) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common == 0 ? 0 : (double) common / (first.length + second.length - common);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Неизменяемый снимок справочника (жанры, рейтинги MPA) с поиском по id через индекс массива.
+ * Id справочников небольшие и идут подряд, поэтому массив занимает считанные элементы.
+ */
+final class ReferenceSnapshot<T> {
+    private final List<T> all;
+    private final Object[] byId;
+
+    private ReferenceSnapshot(List<T> all, Object[] byId) {
+        this.all = all;
+        this.byId = byId;
+    }
+
+    static <T> ReferenceSnapshot<T> of(List<T> items, ToIntFunction<T> idFunction) {
+        int maxId = items.stream().mapToInt(idFunction).max().orElse(0);
+        Object[] byId = new Object[maxId + 1];
+        for (T item : items) {
+            byId[idFunction.applyAsInt(item)] = item;
+        }
+        return new ReferenceSnapshot<>(List.copyOf(items), byId);
+    }
+
+    List<T> all() {
+        return all;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(Integer id) {
+        if (id == null || id < 0 || id >= byId.length) {
+            return null;
+        }
+        return (T) byId[id];
+    }
+}
@@ -1,29 +1,62 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
+@Slf4j
 public class UserService {
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int FRIEND_LOCK_STRIPES = 64;
+
     private final UserStorage userStorage;
+    private final FriendshipGraph friendshipGraph;
+    private final FriendSuggestions friendSuggestions;
+    private final EntityVersions versions;
+    // Запись дружбы в базу и в граф идёт под замком пользователя, иначе параллельные добавление и удаление
+    // одной пары могут оставить в графе другое состояние, чем в friendships. ReentrantLock, а не synchronized:
+    // под замком идёт JDBC-вызов, а на виртуальных потоках synchronized закрепляет поток-носитель
+    private final Lock[] friendLocks = new Lock[FRIEND_LOCK_STRIPES];
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, FriendshipGraph friendshipGraph,
+                       FriendSuggestions friendSuggestions, EntityVersions versions) {
         this.userStorage = userStorage;
+        this.friendshipGraph = friendshipGraph;
+        this.friendSuggestions = friendSuggestions;
+        this.versions = versions;
+        for (int i = 0; i < friendLocks.length; i++) {
+            friendLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void loadFriendshipGraph() {
+        friendshipGraph.load(userStorage.getFriendIdsByUser());
+        log.info("Граф дружбы загружен, пользователей с друзьями: {}", friendshipGraph.size());
     }
 
     public User addUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        return userStorage.addUser(user);
+        User created = userStorage.addUser(user);
+        versions.userChanged(created.getId());
+        return created;
     }
 
     public User updateUser(User user) {
@@ -31,12 +64,9 @@ public class UserService {
             user.setName(user.getLogin());
         }
 
-        User existingUser = userStorage.getUser(user.getId());
-        if (existingUser == null) {
-            throw new NotFoundException("Пользователь не найден");
-        }
-
-        return userStorage.updateUser(user);
+        User updated = userStorage.updateUser(user);
+        versions.userChanged(user.getId());
+        return updated;
     }
 
     public User getUser(Integer id) {
@@ -47,8 +77,23 @@ public class UserService {
         return user;
     }
 
-    public Collection<User> getAllUsers() {
-        return userStorage.getAllUsers();
+    public void checkUserExists(Integer id) {
+        if (id == null || !userStorage.existsById(id)) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+    }
+
+    public void checkUsersExist(Integer... ids) {
+        Set<Integer> existing = userStorage.findExistingIds(Arrays.asList(ids));
+        for (Integer id : ids) {
+            if (!existing.contains(id)) {
+                throw new NotFoundException("Пользователь с id=" + id + " не найден");
+            }
+        }
+    }
+
+    public Collection<User> getAllUsers(FieldSet fields) {
+        return userStorage.getAllUsers(fields);
     }
 
     public void addFriend(Integer userId, Integer friendId) {
@@ -56,37 +101,69 @@ public class UserService {
             throw new ValidationException("Нельзя добавить себя в друзья");
         }
 
-        User user = getUser(userId);
-        User friend = getUser(friendId);
+        checkUsersExist(userId, friendId);
 
-        ((ru.yandex.practicum.filmorate.storage.user.UserDbStorage) userStorage).addFriend(userId, friendId);
+        Lock lock = friendLock(userId);
+        lock.lock();
+        try {
+            userStorage.addFriend(userId, friendId);
+            friendshipGraph.addFriend(userId, friendId);
+        } finally {
+            lock.unlock();
+        }
+        versions.userChanged(userId);
     }
 
     public void confirmFriend(Integer userId, Integer friendId) {
-        User user = getUser(userId);
-        User friend = getUser(friendId);
+        checkUsersExist(userId, friendId);
 
-        ((ru.yandex.practicum.filmorate.storage.user.UserDbStorage) userStorage).confirmFriend(userId, friendId);
+        userStorage.confirmFriend(userId, friendId);
+        versions.userChanged(userId);
     }
 
     public void removeFriend(Integer userId, Integer friendId) {
-        User user = getUser(userId);
-        User friend = getUser(friendId);
-
-        ((ru.yandex.practicum.filmorate.storage.user.UserDbStorage) userStorage).removeFriend(userId, friendId);
+        checkUsersExist(userId, friendId);
+
+        Lock lock = friendLock(userId);
+        lock.lock();
+        try {
+            userStorage.removeFriend(userId, friendId);
+            friendshipGraph.removeFriend(userId, friendId);
+        } finally {
+            lock.unlock();
+        }
+        versions.userChanged(userId);
     }
 
+    @Transactional(readOnly = true)
     public List<User> getFriends(Integer userId) {
-        User user = getUser(userId);
+        checkUserExists(userId);
 
-        return ((ru.yandex.practicum.filmorate.storage.user.UserDbStorage) userStorage).getFriends(userId);
+        return hydrate(friendshipGraph.friends(userId));
     }
 
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(Integer userId, Integer otherId) {
-        User user = getUser(userId);
-        User otherUser = getUser(otherId);
+        checkUsersExist(userId, otherId);
+
+        return hydrate(friendshipGraph.commonFriends(userId, otherId));
+    }
+
+    public List<User> getFriendSuggestions(Integer userId, Integer limit) {
+        int resultSize = limit == null ? DEFAULT_SUGGESTIONS : limit;
+        if (resultSize <= 0 || resultSize > MAX_SUGGESTIONS) {
+            throw new ValidationException("Параметр limit должен быть в диапазоне от 1 до " + MAX_SUGGESTIONS);
+        }
+        checkUserExists(userId);
+
+        return hydrate(friendSuggestions.suggest(userId, resultSize));
+    }
+
+    private Lock friendLock(int userId) {
+        return friendLocks[Math.floorMod(userId, FRIEND_LOCK_STRIPES)];
+    }
 
-        return ((ru.yandex.practicum.filmorate.storage.user.UserDbStorage) userStorage)
-                .getCommonFriends(userId, otherId);
+    private List<User> hydrate(int[] userIds) {
+        return userStorage.getUsersByIds(Arrays.stream(userIds).boxed().toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * В режиме виртуальных потоков ({@code spring.threads.virtual.enabled=true}) ставит перед пулом
+ * соединений {@link ConnectionLimitingDataSource}. По умолчанию лимит равен размеру пула.
+ * <p>
+ * Оборачивается только сам пул Hikari, а не прокси поверх него: иначе разрешение бралось бы на каждую
+ * транзакцию, даже не получившую физического соединения. Пулы основной базы и реплики при включённой
+ * реплике бинами не являются, их ограничивает {@code ReplicaDataSourceConfiguration}, каждый своим
+ * семафором. Обработчик выполняется первым, чтобы увидеть пул до обёртки профилировщика SQL.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConnectionLimitPostProcessor implements BeanPostProcessor, Ordered {
+    private final int maxConcurrency;
+    private final long acquireTimeoutMs;
+
+    public ConnectionLimitPostProcessor(@Value("${filmorate.db.max-concurrency:0}") int maxConcurrency,
+                                        @Value("${filmorate.db.acquire-timeout-ms:1000}") long acquireTimeoutMs) {
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource pool) {
+            return ConnectionLimitingDataSource.forPool(pool, maxConcurrency, acquireTimeoutMs);
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
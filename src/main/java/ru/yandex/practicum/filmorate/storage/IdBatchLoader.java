@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Загружает дочерние строки по списку id родителей.
+ * <p>
+ * Список id передаётся одним параметром-массивом, который разворачивается через {@code UNNEST(?)}
+ * и соединяется с дочерней таблицей по индексу, поэтому текст запроса не зависит от количества id.
+ * Большие списки делятся на порции по {@link #MAX_IDS_PER_QUERY}, все порции выполняются
+ * через один {@link PreparedStatement}.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class IdBatchLoader {
+    // H2 ограничивает длину массива 65536 элементами
+    static final int MAX_IDS_PER_QUERY = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // sql содержит ровно один параметр для массива id: "... FROM UNNEST(?) AS ids(id) JOIN film_likes ..."
+    public void load(String sql, Collection<Integer> ids, RowCallbackHandler handler) {
+        Integer[] keys = ids.stream()
+                .distinct()
+                .toArray(Integer[]::new);
+        if (keys.length == 0) {
+            return;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int from = 0; from < keys.length; from += MAX_IDS_PER_QUERY) {
+                    Integer[] chunk = Arrays.copyOfRange(keys, from, Math.min(from + MAX_IDS_PER_QUERY, keys.length));
+                    Array array = connection.createArrayOf("INTEGER", chunk);
+                    ps.setArray(1, array);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            handler.processRow(rs);
+                        }
+                    } finally {
+                        array.free();
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Курсор по дочерней таблице, упорядоченной по id родителя (первый столбец запроса). Используется
+ * при проходе по родителям в том же порядке: {@link #forKey} отдаёт строки текущего родителя
+ * и останавливается на следующем, так что дочерние строки читаются один раз и без запроса на родителя.
+ */
+public final class SortedSideCursor implements AutoCloseable {
+    private final PreparedStatement statement;
+    private final ResultSet rs;
+    private boolean hasRow;
+
+    public SortedSideCursor(Connection connection, String sql, int fetchSize) throws SQLException {
+        statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        rs = statement.executeQuery();
+        hasRow = rs.next();
+    }
+
+    /**
+     * Передаёт обработчику строки с ключом {@code key}. Строки с меньшим ключом (родитель уже пройден
+     * или отсутствует) пропускаются.
+     */
+    public void forKey(int key, RowCallbackHandler handler) throws SQLException {
+        while (hasRow && rs.getInt(1) < key) {
+            hasRow = rs.next();
+        }
+        while (hasRow && rs.getInt(1) == key) {
+            handler.processRow(rs);
+            hasRow = rs.next();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        statement.close();
+    }
+
+    /**
+     * Включает в H2 ленивое выполнение запросов: строки выбираются по мере чтения курсора, а не
+     * целиком при выполнении. Настройка сессионная, поэтому возвращается при закрытии.
+     */
+    public static LazyExecution lazyQueryExecution(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION TRUE");
+        }
+        return () -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LAZY_QUERY_EXECUTION FALSE");
+            }
+        };
+    }
+
+    public interface LazyExecution extends AutoCloseable {
+        @Override
+        void close() throws SQLException;
+    }
+}
@@ -4,25 +4,45 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmExport;
+import ru.yandex.practicum.filmorate.model.FilmPage;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikePage;
+import ru.yandex.practicum.filmorate.model.LikeSet;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.SortedSideCursor;
 
 import java.sql.*;
 import java.sql.Date;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
 @Qualifier("filmDbStorage")
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class FilmDbStorage implements FilmStorage {
+    private static final String GENRES_SQL = "SELECT fg.film_id, g.id, g.name FROM film_genres fg " +
+            "JOIN genres g ON fg.genre_id = g.id";
+    private static final String GENRES_BY_FILM_IDS_SQL = "SELECT fg.film_id, g.id, g.name FROM UNNEST(?) AS ids(id) " +
+            "JOIN film_genres fg ON fg.film_id = ids.id " +
+            "JOIN genres g ON fg.genre_id = g.id";
+
     private final JdbcTemplate jdbcTemplate;
+    private final IdBatchLoader batchLoader;
 
     @Override
     public Film addFilm(Film film) {
@@ -48,17 +68,61 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public Film updateFilm(Film film) {
-        getFilm(film.getId());
+    @Transactional
+    public List<Integer> addFilms(List<Film> films) {
+        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
 
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        ps.setInt(4, film.getDuration());
+                        ps.setInt(5, film.getMpa().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Integer> ids = new ArrayList<>(films.size());
+        List<Object[]> genreArgs = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            ids.add(film.getId());
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    genreArgs.add(new Object[]{film.getId(), genre.getId()});
+                }
+            }
+        }
+        if (!genreArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genreArgs);
+        }
+        return ids;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? WHERE id = ?";
-        jdbcTemplate.update(sql,
+        int rowsUpdated = jdbcTemplate.update(sql,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
                 film.getMpa().getId(),
                 film.getId());
+        if (rowsUpdated == 0) {
+            throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
+        }
 
         jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", film.getId());
         saveGenresForFilm(film);
@@ -76,7 +140,6 @@ public class FilmDbStorage implements FilmStorage {
             Film film = jdbcTemplate.queryForObject(sql, this::mapRowToFilm, id);
             if (film != null) {
                 loadGenresForFilm(film);
-                loadLikesForFilm(film);
             }
             return film;
         } catch (EmptyResultDataAccessException e) {
@@ -84,32 +147,187 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    @Override
+    public boolean existsById(Integer id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)", Boolean.class, id));
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        batchLoader.load("SELECT f.id FROM UNNEST(?) AS ids(id) JOIN films f ON f.id = ids.id",
+                ids, rs -> existing.add(rs.getInt("id")));
+        return existing;
+    }
+
     @Override
     public Collection<Film> getAllFilms() {
-        String sql = "SELECT f.*, m.name as mpa_name FROM films f JOIN mpa_ratings m ON f.mpa_id = m.id";
-        List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm);
+        return getAllFilms(FieldSet.ALL);
+    }
 
+    @Override
+    public Collection<Film> getAllFilms(FieldSet fields) {
+        String sql = "SELECT " + filmColumns(fields) + " FROM films f" + mpaJoin(fields);
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> mapRowToFilm(rs, fields));
 
-        loadGenresForFilms(films);
-        loadLikesForFilms(films);
+        // Нужны все фильмы, поэтому жанры читаются целиком, без списка id
+        if (fields.includes("genres")) {
+            jdbcTemplate.query(GENRES_SQL, genreRowHandler(toFilmMap(films)));
+        }
 
         return films;
     }
 
+    @Override
+    public FilmPage getFilmsPage(Integer afterId, int limit) {
+        String sql = "SELECT f.*, m.name as mpa_name FROM films f JOIN mpa_ratings m ON f.mpa_id = m.id " +
+                "WHERE f.id > ? ORDER BY f.id LIMIT ?";
+        // Берём на одну запись больше, чтобы понять, есть ли следующая страница
+        List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, afterId == null ? 0 : afterId, limit + 1);
+
+        Integer nextCursor = null;
+        if (films.size() > limit) {
+            films = new ArrayList<>(films.subList(0, limit));
+            nextCursor = films.get(films.size() - 1).getId();
+        }
+
+        loadGenresForFilms(films);
+
+        return new FilmPage(films, nextCursor);
+    }
+
+    @Override
+    public void streamAllFilms(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+        List<Film> chunk = new ArrayList<>(chunkSize);
+        scanFilms(chunkSize, false, (film, likes) -> {
+            chunk.add(film);
+            if (chunk.size() == chunkSize) {
+                chunkConsumer.accept(new ArrayList<>(chunk));
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
+    @Override
+    public void exportFilms(int fetchSize, Consumer<FilmExport> consumer) {
+        scanFilms(fetchSize, true, (film, likes) -> {
+            film.setLikesCount(likes.size());
+            consumer.accept(new FilmExport(film, likes));
+        });
+    }
+
+    /**
+     * Проходит по всем фильмам в порядке id на одном соединении. Жанры и, если нужно, лайки читаются
+     * курсорами по дочерним таблицам в том же порядке, а не запросом на каждую пачку фильмов.
+     */
+    private void scanFilms(int fetchSize, boolean withLikes, BiConsumer<Film, LikeSet> consumer) {
+        Map<Integer, MpaRating> mpaRatings = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM mpa_ratings", (RowCallbackHandler) rs -> mpaRatings.put(
+                rs.getInt("id"), MpaRating.builder().id(rs.getInt("id")).name(rs.getString("name")).build()));
+        Map<Integer, Genre> genres = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM genres", (RowCallbackHandler) rs -> genres.put(
+                rs.getInt("id"), Genre.builder().id(rs.getInt("id")).name(rs.getString("name")).build()));
+
+        // Все курсоры идут по первичным ключам, поэтому H2 отдаёт строки без сортировки и материализации
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (SortedSideCursor.LazyExecution lazy = SortedSideCursor.lazyQueryExecution(connection);
+                 PreparedStatement films = connection.prepareStatement(
+                         "SELECT id, name, description, release_date, duration, mpa_id, likes_count " +
+                                 "FROM films ORDER BY id",
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 SortedSideCursor filmGenres = new SortedSideCursor(connection,
+                         "SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id", fetchSize);
+                 SortedSideCursor filmLikes = withLikes ? new SortedSideCursor(connection,
+                         "SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id", fetchSize) : null) {
+                films.setFetchSize(fetchSize);
+                try (ResultSet rs = films.executeQuery()) {
+                    while (rs.next()) {
+                        Film film = Film.builder()
+                                .id(rs.getInt("id"))
+                                .name(rs.getString("name"))
+                                .description(rs.getString("description"))
+                                .releaseDate(rs.getDate("release_date").toLocalDate())
+                                .duration(rs.getInt("duration"))
+                                .mpa(mpaRatings.get(rs.getInt("mpa_id")))
+                                .genres(new LinkedHashSet<>())
+                                .likesCount(rs.getInt("likes_count"))
+                                .build();
+                        filmGenres.forKey(film.getId(), row -> film.getGenres().add(genres.get(row.getInt(2))));
+                        LikeSet likes = filmLikes == null ? null : new LikeSet();
+                        if (likes != null) {
+                            filmLikes.forKey(film.getId(), row -> likes.add(row.getInt(2)));
+                        }
+                        consumer.accept(film, likes);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
     private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
-        return Film.builder()
-                .id(rs.getInt("id"))
-                .name(rs.getString("name"))
-                .description(rs.getString("description"))
-                .releaseDate(rs.getDate("release_date").toLocalDate())
-                .duration(rs.getInt("duration"))
-                .mpa(MpaRating.builder()
-                        .id(rs.getInt("mpa_id"))
-                        .name(rs.getString("mpa_name"))
-                        .build())
-                .genres(new HashSet<>())
-                .likes(new HashSet<>())
-                .build();
+        return mapRowToFilm(rs, FieldSet.ALL);
+    }
+
+    // Незапрошенные поля остаются null: их столбцов нет в выборке, а в ответ они не попадут
+    private Film mapRowToFilm(ResultSet rs, FieldSet fields) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("id"));
+        if (fields.includes("name")) {
+            film.setName(rs.getString("name"));
+        }
+        if (fields.includes("description")) {
+            film.setDescription(rs.getString("description"));
+        }
+        if (fields.includes("releaseDate")) {
+            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        }
+        if (fields.includes("duration")) {
+            film.setDuration(rs.getInt("duration"));
+        }
+        if (fields.includes("mpa")) {
+            film.setMpa(MpaRating.builder()
+                    .id(rs.getInt("mpa_id"))
+                    .name(rs.getString("mpa_name"))
+                    .build());
+        }
+        if (fields.includes("likesCount")) {
+            film.setLikesCount(rs.getInt("likes_count"));
+        }
+        film.setGenres(fields.includes("genres") ? new HashSet<>() : null);
+        return film;
+    }
+
+    private static String filmColumns(FieldSet fields) {
+        StringJoiner columns = new StringJoiner(", ");
+        columns.add("f.id");
+        if (fields.includes("name")) {
+            columns.add("f.name");
+        }
+        if (fields.includes("description")) {
+            columns.add("f.description");
+        }
+        if (fields.includes("releaseDate")) {
+            columns.add("f.release_date");
+        }
+        if (fields.includes("duration")) {
+            columns.add("f.duration");
+        }
+        if (fields.includes("mpa")) {
+            columns.add("f.mpa_id, m.name AS mpa_name");
+        }
+        if (fields.includes("likesCount")) {
+            columns.add("f.likes_count");
+        }
+        return columns.toString();
+    }
+
+    private static String mpaJoin(FieldSet fields) {
+        return fields.includes("mpa") ? " JOIN mpa_ratings m ON f.mpa_id = m.id" : "";
     }
 
     private void saveGenresForFilm(Film film) {
@@ -142,80 +360,177 @@ public class FilmDbStorage implements FilmStorage {
     private void loadGenresForFilms(List<Film> films) {
         if (films.isEmpty()) return;
 
-        String inClause = String.join(",", Collections.nCopies(films.size(), "?"));
-        String sql = String.format("SELECT fg.film_id, g.id, g.name FROM film_genres fg " +
-                "JOIN genres g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id IN (%s)", inClause);
-
-        Map<Integer, Film> filmMap = films.stream().collect(Collectors.toMap(Film::getId, film -> film));
-        List<Integer> filmIds = films.stream().map(Film::getId).collect(Collectors.toList());
+        Map<Integer, Film> filmMap = toFilmMap(films);
+        batchLoader.load(GENRES_BY_FILM_IDS_SQL, filmMap.keySet(), genreRowHandler(filmMap));
+    }
 
-        jdbcTemplate.query(sql, filmIds.toArray(), rs -> {
-            int filmId = rs.getInt("film_id");
-            Genre genre = Genre.builder()
-                    .id(rs.getInt("id"))
-                    .name(rs.getString("name"))
-                    .build();
-            Film film = filmMap.get(filmId);
+    private RowCallbackHandler genreRowHandler(Map<Integer, Film> filmMap) {
+        return rs -> {
+            Film film = filmMap.get(rs.getInt("film_id"));
             if (film != null) {
-                film.getGenres().add(genre);
+                film.getGenres().add(Genre.builder()
+                        .id(rs.getInt("id"))
+                        .name(rs.getString("name"))
+                        .build());
             }
-        });
+        };
     }
 
-    private void loadLikesForFilm(Film film) {
-        String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
-        Set<Integer> likes = new HashSet<>();
-
-        jdbcTemplate.query(sql, rs -> {
-            likes.add(rs.getInt("user_id"));
-        }, film.getId());
+    private Map<Integer, Film> toFilmMap(List<Film> films) {
+        return films.stream().collect(Collectors.toMap(Film::getId, film -> film));
+    }
 
-        film.setLikes(likes);
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return getFilmsByIds(ids, FieldSet.ALL);
     }
 
-    private void loadLikesForFilms(List<Film> films) {
-        if (films.isEmpty()) return;
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids, FieldSet fields) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        String inClause = String.join(",", Collections.nCopies(films.size(), "?"));
-        String sql = String.format("SELECT film_id, user_id FROM film_likes WHERE film_id IN (%s)", inClause);
+        String sql = "SELECT " + filmColumns(fields) + " FROM UNNEST(?) AS ids(id) " +
+                "JOIN films f ON f.id = ids.id" + mpaJoin(fields);
+        Map<Integer, Film> filmMap = new HashMap<>();
+        batchLoader.load(sql, ids, rs -> {
+            Film film = mapRowToFilm(rs, fields);
+            filmMap.put(film.getId(), film);
+        });
 
-        Map<Integer, Film> filmMap = films.stream().collect(Collectors.toMap(Film::getId, film -> film));
-        List<Integer> filmIds = films.stream().map(Film::getId).collect(Collectors.toList());
+        List<Film> films = ids.stream()
+                .map(filmMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (fields.includes("genres")) {
+            loadGenresForFilms(films);
+        }
 
-        jdbcTemplate.query(sql, filmIds.toArray(), rs -> {
-            int filmId = rs.getInt("film_id");
-            int userId = rs.getInt("user_id");
-            Film film = filmMap.get(filmId);
-            if (film != null) {
-                film.getLikes().add(userId);
-            }
-        });
+        return films;
+    }
+
+    @Override
+    public LikePage getLikes(Integer filmId, Integer afterUserId, int limit) {
+        // Первичный ключ (film_id, user_id) отдаёт страницу диапазоном по индексу, без сортировки
+        String sql = "SELECT user_id FROM film_likes WHERE film_id = ? AND user_id > ? ORDER BY user_id LIMIT ?";
+        List<Integer> userIds = jdbcTemplate.queryForList(sql, Integer.class,
+                filmId, afterUserId == null ? 0 : afterUserId, limit + 1);
+
+        Integer nextCursor = null;
+        if (userIds.size() > limit) {
+            userIds = new ArrayList<>(userIds.subList(0, limit));
+            nextCursor = userIds.get(userIds.size() - 1);
+        }
+        return new LikePage(userIds, nextCursor);
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(Integer filmId, Integer userId) {
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(Integer filmId, Integer userId) {
+        int deleted = jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+        if (deleted > 0) {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+        }
+        return deleted > 0;
     }
 
-    public void addLike(Integer filmId, Integer userId) {
-        String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+    @Override
+    @Transactional
+    public Map<Integer, Integer> applyLikeChanges(Collection<LikeChange> changes) {
+        List<LikeChange> added = new ArrayList<>();
+        List<LikeChange> removed = new ArrayList<>();
+        for (LikeChange change : changes) {
+            (change.liked() ? added : removed).add(change);
+        }
+        // Число строк, реально изменённых каждой командой, даёт чистую разницу likes_count без пересчёта COUNT(*)
+        Map<Integer, Integer> deltas = new TreeMap<>();
+        if (!added.isEmpty()) {
+            int[] inserted = jdbcTemplate.batchUpdate("INSERT INTO film_likes (film_id, user_id) " +
+                            "SELECT CAST(? AS INTEGER), CAST(? AS INTEGER) WHERE NOT EXISTS " +
+                            "(SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)",
+                    added.stream().map(change -> new Object[]{change.filmId(), change.userId(),
+                            change.filmId(), change.userId()}).toList());
+            collectDeltas(added, inserted, 1, deltas);
+        }
+        if (!removed.isEmpty()) {
+            int[] deleted = jdbcTemplate.batchUpdate("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?",
+                    removed.stream().map(change -> new Object[]{change.filmId(), change.userId()}).toList());
+            collectDeltas(removed, deleted, -1, deltas);
+        }
+        List<Object[]> updates = deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                .toList();
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?", updates);
+        }
+
+        Set<Integer> filmIds = new TreeSet<>();
+        changes.forEach(change -> filmIds.add(change.filmId()));
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        batchLoader.load("SELECT f.id, f.likes_count FROM UNNEST(?) AS ids(id) JOIN films f ON f.id = ids.id",
+                filmIds, rs -> likesCounts.put(rs.getInt("id"), rs.getInt("likes_count")));
+        return likesCounts;
     }
 
-    public void removeLike(Integer filmId, Integer userId) {
-        String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+    private static void collectDeltas(List<LikeChange> changes, int[] rowCounts, int sign,
+                                      Map<Integer, Integer> deltas) {
+        for (int i = 0; i < rowCounts.length; i++) {
+            if (rowCounts[i] > 0) {
+                deltas.merge(changes.get(i).filmId(), sign, Integer::sum);
+            }
+        }
     }
 
+    @Override
     public List<Film> getPopularFilms(int count) {
-        String sql = "SELECT f.*, m.name as mpa_name, COUNT(fl.user_id) as likes_count " +
+        String sql = "SELECT f.*, m.name as mpa_name " +
                 "FROM films f " +
                 "JOIN mpa_ratings m ON f.mpa_id = m.id " +
-                "LEFT JOIN film_likes fl ON f.id = fl.film_id " +
-                "GROUP BY f.id " +
-                "ORDER BY likes_count DESC " +
+                "ORDER BY f.likes_count DESC, f.id " +
                 "LIMIT ?";
 
         List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, count);
         loadGenresForFilms(films);
-        loadLikesForFilms(films);
 
         return films;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT id, likes_count FROM films", rs -> {
+            likesCounts.put(rs.getInt("id"), rs.getInt("likes_count"));
+        });
+        return likesCounts;
+    }
+
+    @Override
+    public Map<Integer, int[]> getLikedFilmIdsByUser() {
+        Map<Integer, List<Integer>> filmIds = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, film_id FROM film_likes", (RowCallbackHandler) rs ->
+                filmIds.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>()).add(rs.getInt("film_id")));
+
+        Map<Integer, int[]> result = new HashMap<>();
+        filmIds.forEach((userId, ids) -> result.put(userId, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    // Пересчитывает likes_count по film_likes, возвращает число исправленных фильмов
+    @Transactional
+    public int rebuildLikesCounts() {
+        String sql = "UPDATE films f SET likes_count = " +
+                "(SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id) " +
+                "WHERE likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)";
+        return jdbcTemplate.update(sql);
+    }
+}
@@ -1,22 +1,64 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmExport;
+import ru.yandex.practicum.filmorate.model.FilmPage;
+import ru.yandex.practicum.filmorate.model.LikePage;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film addFilm(Film film);
 
+    List<Integer> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Film getFilm(Integer id);
 
+    boolean existsById(Integer id);
+
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
     Collection<Film> getAllFilms();
 
-    void addLike(Integer filmId, Integer userId);
+    /**
+     * Фильмы только с запрошенными полями: хранилище может не читать остальные столбцы и дочерние таблицы.
+     */
+    Collection<Film> getAllFilms(FieldSet fields);
+
+    FilmPage getFilmsPage(Integer afterId, int limit);
+
+    void streamAllFilms(int chunkSize, Consumer<List<Film>> chunkConsumer);
+
+    /**
+     * Передаёт все фильмы вместе с id лайкнувших по одному в порядке id, не держа их в памяти.
+     */
+    void exportFilms(int fetchSize, Consumer<FilmExport> consumer);
+
+    List<Film> getFilmsByIds(List<Integer> ids);
 
-    void removeLike(Integer filmId, Integer userId);
+    List<Film> getFilmsByIds(List<Integer> ids, FieldSet fields);
+
+    /**
+     * Страница id лайкнувших фильм пользователей по возрастанию, начиная после {@code afterUserId}.
+     */
+    LikePage getLikes(Integer filmId, Integer afterUserId, int limit);
+
+    boolean addLike(Integer filmId, Integer userId);
+
+    boolean removeLike(Integer filmId, Integer userId);
+
+    Map<Integer, Integer> applyLikeChanges(Collection<LikeChange> changes);
 
     List<Film> getPopularFilms(int count);
+
+    Map<Integer, Integer> getLikesCounts();
+
+    Map<Integer, int[]> getLikedFilmIdsByUser();
 }
\ No newline at end of file
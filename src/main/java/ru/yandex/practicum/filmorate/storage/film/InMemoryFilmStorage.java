@@ -3,74 +3,241 @@ package ru.yandex.practicum.filmorate.storage.film;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmExport;
+import ru.yandex.practicum.filmorate.model.FilmPage;
+import ru.yandex.practicum.filmorate.model.LikePage;
+import ru.yandex.practicum.filmorate.model.LikeSet;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Потокобезопасное хранилище фильмов в памяти для нагрузочных тестов и временных окружений.
+ * <p>
+ * Фильмы лежат в {@link ConcurrentSkipListMap}, упорядоченной по id, как и выборки из БД.
+ * Лайки каждого фильма хранятся отдельно от него в синхронизированном {@link LikeSet}, поэтому лайки
+ * к одному фильму из разных потоков не теряются и не требуют блокировки всего хранилища,
+ * а в самом фильме, как и в БД, лежит только их число.
+ */
 @Component
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int filmId = 1;
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Integer, LikeSet> likes = new ConcurrentHashMap<>();
+    private final AtomicInteger filmId = new AtomicInteger();
 
     @Override
     public Film addFilm(Film film) {
-        film.setId(filmId++);
+        film.setId(filmId.incrementAndGet());
+        film.setGenres(film.getGenres() == null ? new HashSet<>() : new HashSet<>(film.getGenres()));
+        film.setLikesCount(0);
+        likes.put(film.getId(), new LikeSet());
         films.put(film.getId(), film);
         log.info("Добавлен фильм с ID: {}", film.getId());
         return film;
     }
 
+    @Override
+    public List<Integer> addFilms(List<Film> films) {
+        List<Integer> ids = new ArrayList<>(films.size());
+        for (Film film : films) {
+            ids.add(addFilm(film).getId());
+        }
+        return ids;
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        if (!films.containsKey(film.getId())) {
-            throw new NotFoundException("Фильм не найден");
+        Film updated = films.computeIfPresent(film.getId(), (id, existing) -> {
+            film.setGenres(film.getGenres() == null ? new HashSet<>() : new HashSet<>(film.getGenres()));
+            // Лайки меняются только через addLike/removeLike, как и в FilmDbStorage
+            film.setLikesCount(existing.getLikesCount());
+            return film;
+        });
+        if (updated == null) {
+            throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
         }
-        films.put(film.getId(), film);
-        return film;
+        return updated;
     }
 
     @Override
     public Film getFilm(Integer id) {
-        return films.get(id);
+        Film film = films.get(id);
+        if (film == null) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+        return film;
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return id != null && films.containsKey(id);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(this::existsById)
+                .collect(Collectors.toSet());
     }
 
     @Override
     public Collection<Film> getAllFilms() {
-        return films.values();
+        return new ArrayList<>(films.values());
     }
 
+    // Фильмы уже в памяти, читать выборочно нечего: лишние поля отбросит сериализация
     @Override
-    public void addLike(Integer filmId, Integer userId) {
-        Film film = films.get(filmId);
-        if (film != null) {
-            if (film.getLikes() == null) {
-                film.setLikes(new HashSet<>());
+    public Collection<Film> getAllFilms(FieldSet fields) {
+        return getAllFilms();
+    }
+
+    @Override
+    public FilmPage getFilmsPage(Integer afterId, int limit) {
+        List<Film> page = new ArrayList<>(limit);
+        Integer nextCursor = null;
+        for (Film film : films.tailMap(afterId == null ? 0 : afterId, false).values()) {
+            if (page.size() == limit) {
+                nextCursor = page.get(page.size() - 1).getId();
+                break;
             }
-            film.getLikes().add(userId);
+            page.add(film);
+        }
+        return new FilmPage(page, nextCursor);
+    }
+
+    @Override
+    public void exportFilms(int fetchSize, Consumer<FilmExport> consumer) {
+        films.values().forEach(film -> consumer.accept(new FilmExport(film, likesOf(film.getId()).copy())));
+    }
+
+    @Override
+    public void streamAllFilms(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+        List<Film> chunk = new ArrayList<>(chunkSize);
+        for (Film film : films.values()) {
+            chunk.add(film);
+            if (chunk.size() == chunkSize) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids, FieldSet fields) {
+        return getFilmsByIds(ids);
+    }
+
+    @Override
+    public LikePage getLikes(Integer filmId, Integer afterUserId, int limit) {
+        List<Integer> userIds = likesOf(filmId).page(afterUserId == null ? 0 : afterUserId, limit + 1);
+
+        Integer nextCursor = null;
+        if (userIds.size() > limit) {
+            userIds = new ArrayList<>(userIds.subList(0, limit));
+            nextCursor = userIds.get(userIds.size() - 1);
+        }
+        return new LikePage(userIds, nextCursor);
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        LikeSet filmLikes = likesOf(filmId);
+        boolean added = filmLikes.add(userId);
+        if (added) {
+            updateLikesCount(filmId, filmLikes);
             log.info("Добавлен лайк от пользователя {} к фильму {}", userId, filmId);
         }
+        return added;
     }
 
     @Override
-    public void removeLike(Integer filmId, Integer userId) {
-        Film film = films.get(filmId);
-        if (film != null && film.getLikes() != null) {
-            film.getLikes().remove(userId);
+    public boolean removeLike(Integer filmId, Integer userId) {
+        LikeSet filmLikes = likesOf(filmId);
+        boolean removed = filmLikes.remove(userId);
+        if (removed) {
+            updateLikesCount(filmId, filmLikes);
             log.info("Удален лайк пользователя {} с фильма {}", userId, filmId);
         }
+        return removed;
+    }
+
+    @Override
+    public Map<Integer, Integer> applyLikeChanges(Collection<LikeChange> changes) {
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        for (LikeChange change : changes) {
+            if (change.liked()) {
+                addLike(change.filmId(), change.userId());
+            } else {
+                removeLike(change.filmId(), change.userId());
+            }
+            likesCounts.put(change.filmId(), likesOf(change.filmId()).size());
+        }
+        return likesCounts;
     }
 
     @Override
     public List<Film> getPopularFilms(int count) {
         return films.values().stream()
-                .sorted((film1, film2) -> {
-                    int likes1 = film1.getLikes() != null ? film1.getLikes().size() : 0;
-                    int likes2 = film2.getLikes() != null ? film2.getLikes().size() : 0;
-                    return Integer.compare(likes2, likes1); // По убыванию
-                })
+                .sorted(Comparator.comparingInt(Film::getLikesCount).reversed()
+                        .thenComparing(Film::getId))
                 .limit(count)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        return films.values().stream()
+                .collect(Collectors.toMap(Film::getId, Film::getLikesCount));
+    }
+
+    @Override
+    public Map<Integer, int[]> getLikedFilmIdsByUser() {
+        Map<Integer, List<Integer>> filmIds = new HashMap<>();
+        likes.forEach((filmId, filmLikes) -> filmLikes.forEach(userId ->
+                filmIds.computeIfAbsent(userId, id -> new ArrayList<>()).add(filmId)));
+
+        Map<Integer, int[]> result = new HashMap<>();
+        filmIds.forEach((userId, ids) -> result.put(userId, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    private LikeSet likesOf(Integer filmId) {
+        LikeSet filmLikes = filmId == null ? null : likes.get(filmId);
+        if (filmLikes == null) {
+            throw new NotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+        return filmLikes;
+    }
+
+    // computeIfPresent у ConcurrentSkipListMap ключ не блокирует и может вызвать функцию повторно, поэтому
+    // размер читается и записывается под монитором LikeSet: последним пишет тот, кто прочитал размер после
+    // последнего изменения, а повторный вызов лишь заново записывает текущий размер
+    private void updateLikesCount(Integer filmId, LikeSet filmLikes) {
+        films.computeIfPresent(filmId, (id, film) -> {
+            synchronized (filmLikes) {
+                film.setLikesCount(filmLikes.size());
+            }
+            return film;
+        });
+    }
+}
@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+public record LikeChange(int filmId, int userId, boolean liked) {
+}
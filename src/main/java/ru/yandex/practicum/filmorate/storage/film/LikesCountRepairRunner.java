@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "filmorate.likes.repair-on-startup", havingValue = "true")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class LikesCountRepairRunner implements ApplicationRunner {
+    private final FilmDbStorage filmStorage;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Пересчёт счётчиков лайков по таблице film_likes");
+        int repaired = filmStorage.rebuildLikesCounts();
+        log.info("Счётчики лайков пересчитаны, исправлено фильмов: {}", repaired);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Направляет read-only транзакции ({@code @Transactional(readOnly = true)}) в реплику, а всё остальное -
+ * в основную базу. Реплика используется, только если её отставание не больше допустимого для текущего
+ * обработчика, см. {@link ReplicaReadPolicy}.
+ * <p>
+ * Должен стоять за {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: менеджер
+ * транзакций берёт соединение раньше, чем помечает транзакцию как read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private final ReplicaReadPolicy readPolicy;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaReadPolicy readPolicy) {
+        this.readPolicy = readPolicy;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && readPolicy.replicaReadable()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+
+    private enum Target {
+        PRIMARY,
+        REPLICA
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.yandex.practicum.filmorate.storage.ConnectionLimitingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Включается заданием {@code filmorate.datasource.replica.url}: вместо одного пула приложение получает
+ * пул основной базы ({@code spring.datasource.*}) и пул реплики за {@link ReadWriteRoutingDataSource}.
+ * Без этого свойства остаётся DataSource из автоконфигурации Spring Boot.
+ */
+@Configuration
+@ConditionalOnProperty("filmorate.datasource.replica.url")
+public class ReplicaDataSourceConfiguration {
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final ReplicaLagTracker lagTracker = new ReplicaLagTracker();
+    private final ReplicaReadPolicy readPolicy;
+    private final boolean virtualThreads;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMs;
+
+    public ReplicaDataSourceConfiguration(DataSourceProperties properties,
+                                          @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                          @Value("${filmorate.datasource.replica.url}") String replicaUrl,
+                                          @Value("${filmorate.datasource.replica.pool-size:10}") int replicaPoolSize,
+                                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                          @Value("${filmorate.db.max-concurrency:0}") int maxConcurrency,
+                                          @Value("${filmorate.db.acquire-timeout-ms:1000}") long acquireTimeoutMs,
+                                          Environment environment) {
+        this.virtualThreads = virtualThreads;
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.readPolicy = new ReplicaReadPolicy(lagTracker, environment);
+
+        primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        primary.setMaximumPoolSize(poolSize);
+
+        replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(replicaUrl);
+        replica.setUsername(properties.determineUsername());
+        replica.setPassword(properties.determinePassword());
+        replica.setMaximumPoolSize(replicaPoolSize);
+    }
+
+    @Bean
+    public DataSource dataSource() {
+        DataSource trackedPrimary = new WriteTrackingDataSource(limited(primary), lagTracker);
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(trackedPrimary, limited(replica), readPolicy));
+    }
+
+    // На виртуальных потоках у каждого пула свой семафор по его размеру, см. ConnectionLimitPostProcessor
+    private DataSource limited(HikariDataSource pool) {
+        return virtualThreads ? ConnectionLimitingDataSource.forPool(pool, maxConcurrency, acquireTimeoutMs) : pool;
+    }
+
+    @Bean
+    public ReplicaSynchronizer replicaSynchronizer() {
+        return new ReplicaSynchronizer(primary, replica, lagTracker);
+    }
+
+    @Bean
+    public ReplicaLagTracker replicaLagTracker() {
+        return lagTracker;
+    }
+
+    @Bean
+    public ReplicaReadPolicy replicaReadPolicy() {
+        return readPolicy;
+    }
+
+    @PreDestroy
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отставание реплики от основной базы.
+ * <p>
+ * Каждое закрытое соединение основной базы, через которое выполнялась запись (см. {@link WriteTrackingDataSource}),
+ * увеличивает версию. Синхронизация запоминает версию до начала копирования, поэтому всё, что закрыто раньше,
+ * точно попало в реплику.
+ * Отставание - время с первой записи, которой ещё нет в реплике; ноль, только если реплика догнала основную базу.
+ */
+public class ReplicaLagTracker {
+    private final AtomicLong writeVersion = new AtomicLong();
+    private final AtomicLong pendingSince = new AtomicLong();
+    private volatile long replicatedVersion = -1;
+
+    public void writeCompleted() {
+        writeVersion.incrementAndGet();
+        pendingSince.compareAndSet(0, System.nanoTime());
+    }
+
+    public long writeVersion() {
+        return writeVersion.get();
+    }
+
+    /**
+     * Реплика содержит все записи до {@code version}; копирование началось в {@code startedAt}.
+     */
+    public void replicated(long version, long startedAt) {
+        replicatedVersion = version;
+        if (writeVersion.get() == version) {
+            pendingSince.set(0);
+        } else {
+            // Записи после начала копирования не старше его начала
+            pendingSince.set(startedAt);
+        }
+    }
+
+    /**
+     * Отставание в миллисекундах или {@link Long#MAX_VALUE}, если реплика ещё не синхронизировалась.
+     */
+    public long lagMs() {
+        if (replicatedVersion < 0) {
+            return Long.MAX_VALUE;
+        }
+        if (writeVersion.get() == replicatedVersion) {
+            return 0;
+        }
+        long since = pendingSince.get();
+        // Запись могла проскочить между проверкой и сбросом в replicated(): считаем реплику устаревшей
+        if (since == 0) {
+            return Long.MAX_VALUE;
+        }
+        // Не меньше 1 мс: ноль означает, что реплика догнала основную базу
+        return Math.max(1, (System.nanoTime() - since) / 1_000_000);
+    }
+}
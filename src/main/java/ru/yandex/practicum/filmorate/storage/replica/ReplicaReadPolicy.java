@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import org.springframework.core.env.Environment;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Допустимое отставание реплики для текущего обработчика: {@code filmorate.datasource.replica.max-lag-ms.
+ * <Контроллер>.<метод>}, а без него - {@code filmorate.datasource.replica.max-lag-ms}.
+ */
+public class ReplicaReadPolicy {
+    private static final String MAX_LAG_PROPERTY = "filmorate.datasource.replica.max-lag-ms";
+
+    private final ReplicaLagTracker lagTracker;
+    private final Environment environment;
+    private final long defaultMaxLagMs;
+    private final Map<Method, Long> maxLagByHandler = new ConcurrentHashMap<>();
+
+    public ReplicaReadPolicy(ReplicaLagTracker lagTracker, Environment environment) {
+        this.lagTracker = lagTracker;
+        this.environment = environment;
+        this.defaultMaxLagMs = environment.getProperty(MAX_LAG_PROPERTY, Long.class, 0L);
+    }
+
+    /**
+     * Реплика отстаёт не больше, чем допускает текущий обработчик.
+     */
+    public boolean replicaReadable() {
+        return lagTracker.lagMs() <= currentMaxLagMs();
+    }
+
+    /**
+     * Текущий обработчик может прочитать реплику, в которой ещё нет части записей. Если реплика
+     * уже догнала основную базу, любое её последующее состояние не старше уже сделанных записей.
+     */
+    public boolean mayReadStale() {
+        return lagTracker.lagMs() > 0 && currentMaxLagMs() > 0;
+    }
+
+    private long currentMaxLagMs() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return defaultMaxLagMs;
+        }
+        Object handler = attributes.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return defaultMaxLagMs;
+        }
+        return maxLagByHandler.computeIfAbsent(handlerMethod.getMethod(), method -> environment.getProperty(
+                MAX_LAG_PROPERTY + "." + method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+                Long.class, defaultMaxLagMs));
+    }
+}
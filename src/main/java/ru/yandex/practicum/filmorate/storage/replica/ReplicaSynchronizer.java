@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.List;
+
+/**
+ * Заменитель настоящей репликации для локального запуска и тестов: периодически копирует все таблицы
+ * основной базы во вторую базу H2.
+ * <p>
+ * Снимок читается в одной транзакции REPEATABLE READ, а реплика перезаписывается в одной транзакции,
+ * так что читатели реплики видят либо старый, либо новый согласованный снимок. Копирование целиком
+ * подходит только для небольших баз.
+ */
+@Slf4j
+public class ReplicaSynchronizer {
+    // В порядке внешних ключей: родительские таблицы раньше дочерних
+    private static final List<String> TABLES = List.of(
+            "mpa_ratings", "genres", "films", "film_genres", "users", "film_likes", "friendships");
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagTracker lagTracker;
+
+    public ReplicaSynchronizer(DataSource primary, DataSource replica, ReplicaLagTracker lagTracker) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagTracker = lagTracker;
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(replica);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.datasource.replica.sync-ms:1000}")
+    public synchronized void sync() {
+        long version = lagTracker.writeVersion();
+        long startedAt = System.nanoTime();
+        try (Connection source = primary.getConnection(); Connection target = replica.getConnection()) {
+            source.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            source.setAutoCommit(false);
+            target.setAutoCommit(false);
+            try {
+                copyTables(source, target);
+                target.commit();
+            } catch (SQLException e) {
+                target.rollback();
+                throw e;
+            } finally {
+                source.rollback();
+            }
+        } catch (SQLException e) {
+            log.warn("Не удалось синхронизировать реплику: {}", e.getMessage());
+            return;
+        }
+        lagTracker.replicated(version, startedAt);
+        log.debug("Реплика синхронизирована за {} мс", (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void copyTables(Connection source, Connection target) throws SQLException {
+        try (Statement statement = target.createStatement()) {
+            for (int i = TABLES.size() - 1; i >= 0; i--) {
+                statement.executeUpdate("DELETE FROM " + TABLES.get(i));
+            }
+        }
+        for (String table : TABLES) {
+            copyTable(source, target, table);
+        }
+    }
+
+    private void copyTable(Connection source, Connection target, String table) throws SQLException {
+        try (Statement select = source.createStatement();
+             ResultSet rs = select.executeQuery("SELECT * FROM " + table)) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int columns = metaData.getColumnCount();
+            StringBuilder names = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 1; i <= columns; i++) {
+                names.append(i > 1 ? ", " : "").append(metaData.getColumnName(i));
+                placeholders.append(i > 1 ? ", ?" : "?");
+            }
+
+            String sql = "INSERT INTO " + table + " (" + names + ") VALUES (" + placeholders + ")";
+            try (PreparedStatement insert = target.prepareStatement(sql)) {
+                int batched = 0;
+                while (rs.next()) {
+                    for (int i = 1; i <= columns; i++) {
+                        insert.setObject(i, rs.getObject(i));
+                    }
+                    insert.addBatch();
+                    if (++batched == INSERT_BATCH_SIZE) {
+                        insert.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    insert.executeBatch();
+                }
+            }
+        }
+    }
+}
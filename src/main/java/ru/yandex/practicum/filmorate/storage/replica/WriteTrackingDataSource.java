@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сообщает {@link ReplicaLagTracker} о закрытии соединения основной базы, через которое что-то записали.
+ * Закрытие, а не выполнение команды, потому что к этому моменту транзакция уже зафиксирована и её увидит
+ * следующая синхронизация.
+ * <p>
+ * Записью считается любая команда, кроме чтения ({@code SELECT}, {@code WITH} и т.п.), настроек сеанса
+ * ({@code SET}) и управления транзакцией ({@code COMMIT}, {@code SAVEPOINT} и т.п.), переданная в
+ * {@code prepareStatement}/{@code prepareCall} или в {@code execute*}/{@code addBatch} обычного
+ * {@link Statement}. Откат транзакции сбрасывает отметку. Чтения через основную базу - вне транзакций,
+ * в read-only транзакциях, не попавших на реплику из-за отставания, и в фоновых перестроениях - версию
+ * не увеличивают, иначе отставание никогда не возвращалось бы к нулю.
+ */
+class WriteTrackingDataSource extends DelegatingDataSource {
+    private static final Set<String> NON_WRITE_COMMANDS = Set.of("SELECT", "WITH", "VALUES", "TABLE", "SHOW", "EXPLAIN",
+            "SET", "COMMIT", "ROLLBACK", "SAVEPOINT", "RELEASE");
+    private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeUpdate", "executeLargeUpdate", "executeQuery", "addBatch");
+
+    private final ReplicaLagTracker lagTracker;
+
+    WriteTrackingDataSource(DataSource target, ReplicaLagTracker lagTracker) {
+        super(target);
+        this.lagTracker = lagTracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = obtainTargetDataSource().getConnection();
+        AtomicBoolean wrote = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(WriteTrackingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (STATEMENT_METHODS.contains(name) && isWrite(args)) {
+                        wrote.set(true);
+                    }
+                    try {
+                        Object result = invoke(connection, method, args);
+                        if ("createStatement".equals(name)) {
+                            return trackStatement((Statement) result, wrote);
+                        }
+                        if ("rollback".equals(name) && (args == null || args.length == 0)) {
+                            wrote.set(false);
+                        }
+                        return result;
+                    } finally {
+                        if ("close".equals(name) && wrote.getAndSet(false)) {
+                            lagTracker.writeCompleted();
+                        }
+                    }
+                });
+    }
+
+    private static Statement trackStatement(Statement statement, AtomicBoolean wrote) {
+        return (Statement) Proxy.newProxyInstance(WriteTrackingDataSource.class.getClassLoader(),
+                new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+                    if (EXECUTE_METHODS.contains(method.getName()) && isWrite(args)) {
+                        wrote.set(true);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isWrite(Object[] args) {
+        if (args == null || args.length == 0 || !(args[0] instanceof String sql)) {
+            return false;
+        }
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return !NON_WRITE_COMMANDS.contains(trimmed.substring(0, end).toUpperCase(Locale.ROOT));
+    }
+}
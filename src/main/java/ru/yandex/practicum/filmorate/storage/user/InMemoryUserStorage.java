@@ -2,29 +2,50 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FieldSet;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/**
+ * Потокобезопасное хранилище пользователей в памяти. Друзья каждого пользователя хранятся
+ * в {@link ConcurrentHashMap}, поэтому дружбы разных пар обновляются без общей блокировки.
+ */
 @Component
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private int userId = 1;
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final AtomicInteger userId = new AtomicInteger();
 
     @Override
     public User addUser(User user) {
-        user.setId(userId++);
+        user.setId(userId.incrementAndGet());
+        Map<Integer, FriendshipStatus> friends = new ConcurrentHashMap<>();
+        if (user.getFriends() != null) {
+            friends.putAll(user.getFriends());
+        }
+        user.setFriends(friends);
         users.put(user.getId(), user);
         return user;
     }
 
     @Override
     public User updateUser(User user) {
-        if (!users.containsKey(user.getId())) {
+        User updated = users.computeIfPresent(user.getId(), (id, existing) -> {
+            // Друзья меняются только через addFriend/removeFriend, как и в UserDbStorage
+            user.setFriends(existing.getFriends());
+            return user;
+        });
+        if (updated == null) {
             throw new NotFoundException("Пользователь с id=" + user.getId() + " не найден");
         }
-        users.put(user.getId(), user);
-        return user;
+        return updated;
     }
 
     @Override
@@ -36,8 +57,82 @@ public class InMemoryUserStorage implements UserStorage {
         return user;
     }
 
+    @Override
+    public boolean existsById(Integer id) {
+        return id != null && users.containsKey(id);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(this::existsById)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public Collection<User> getAllUsers() {
-        return users.values();
+        return new ArrayList<>(users.values());
+    }
+
+    // Пользователи уже в памяти, читать выборочно нечего: лишние поля отбросит сериализация
+    @Override
+    public Collection<User> getAllUsers(FieldSet fields) {
+        return getAllUsers();
+    }
+
+    @Override
+    public void addFriend(Integer userId, Integer friendId) {
+        getUser(userId).getFriends().put(friendId, FriendshipStatus.UNCONFIRMED);
+    }
+
+    @Override
+    public void removeFriend(Integer userId, Integer friendId) {
+        getUser(userId).getFriends().remove(friendId);
+    }
+
+    @Override
+    public void confirmFriend(Integer userId, Integer friendId) {
+        getUser(userId).getFriends().replace(friendId, FriendshipStatus.CONFIRMED);
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendIdsByUser() {
+        Map<Integer, int[]> result = new HashMap<>();
+        users.forEach((id, user) -> result.put(id,
+                user.getFriends().keySet().stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    @Override
+    public void exportUsers(int fetchSize, Consumer<User> consumer) {
+        users.values().forEach(consumer);
+    }
+
+    @Override
+    public List<User> getFriends(Integer userId) {
+        return getUser(userId).getFriends().keySet().stream()
+                .sorted()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId) {
+        Set<Integer> otherFriends = getUser(otherId).getFriends().keySet();
+        return getUser(userId).getFriends().keySet().stream()
+                .filter(otherFriends::contains)
+                .sorted()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -4,13 +4,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.SortedSideCursor;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -18,6 +23,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -25,6 +31,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final IdBatchLoader batchLoader;
 
     @Override
     public User addUser(User user) {
@@ -76,28 +83,124 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    @Override
+    public boolean existsById(Integer id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)", Boolean.class, id));
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        batchLoader.load("SELECT u.id FROM UNNEST(?) AS ids(id) JOIN users u ON u.id = ids.id",
+                ids, rs -> existing.add(rs.getInt("id")));
+        return existing;
+    }
+
     @Override
     public Collection<User> getAllUsers() {
-        String sql = "SELECT * FROM users";
-        List<User> users = jdbcTemplate.query(sql, this::mapRowToUser);
+        return getAllUsers(FieldSet.ALL);
+    }
 
-        Map<Integer, User> userMap = users.stream()
-                .collect(Collectors.toMap(User::getId, user -> user));
+    @Override
+    public Collection<User> getAllUsers(FieldSet fields) {
+        String sql = "SELECT " + userColumns(fields) + " FROM users";
+        List<User> users = jdbcTemplate.query(sql, (rs, rowNum) -> mapRowToUser(rs, fields));
 
-        loadFriendsForUsers(userMap);
+        if (fields.includes("friends")) {
+            Map<Integer, User> userMap = users.stream()
+                    .collect(Collectors.toMap(User::getId, user -> user));
+            loadFriendsForUsers(userMap);
+        }
 
         return users;
     }
 
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, User> userMap = new HashMap<>();
+        batchLoader.load("SELECT u.* FROM UNNEST(?) AS ids(id) JOIN users u ON u.id = ids.id", ids, rs -> {
+            User user = mapRowToUser(rs, 0);
+            userMap.put(user.getId(), user);
+        });
+
+        return ids.stream()
+                .map(userMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Integer, int[]> getFriendIdsByUser() {
+        Map<Integer, List<Integer>> friendIds = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships", (RowCallbackHandler) rs ->
+                friendIds.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>()).add(rs.getInt("friend_id")));
+
+        Map<Integer, int[]> result = new HashMap<>();
+        friendIds.forEach((userId, ids) -> result.put(userId, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    @Override
+    public void exportUsers(int fetchSize, Consumer<User> consumer) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (SortedSideCursor.LazyExecution lazy = SortedSideCursor.lazyQueryExecution(connection);
+                 PreparedStatement users = connection.prepareStatement(
+                         "SELECT id, email, login, name, birthday FROM users ORDER BY id",
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 SortedSideCursor friendships = new SortedSideCursor(connection,
+                         "SELECT user_id, friend_id, status FROM friendships ORDER BY user_id, friend_id", fetchSize)) {
+                users.setFetchSize(fetchSize);
+                try (ResultSet rs = users.executeQuery()) {
+                    while (rs.next()) {
+                        User user = mapRowToUser(rs, 0);
+                        user.setFriends(new LinkedHashMap<>());
+                        friendships.forKey(user.getId(), row -> user.getFriends()
+                                .put(row.getInt(2), FriendshipStatus.valueOf(row.getString(3))));
+                        consumer.accept(user);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
-        return User.builder()
-                .id(rs.getInt("id"))
-                .email(rs.getString("email"))
-                .login(rs.getString("login"))
-                .name(rs.getString("name"))
-                .birthday(rs.getObject("birthday", LocalDate.class))
-                .friends(new HashMap<>())
-                .build();
+        return mapRowToUser(rs, FieldSet.ALL);
+    }
+
+    // Незапрошенные поля остаются null: их столбцов нет в выборке, а в ответ они не попадут
+    private User mapRowToUser(ResultSet rs, FieldSet fields) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        if (fields.includes("email")) {
+            user.setEmail(rs.getString("email"));
+        }
+        if (fields.includes("login")) {
+            user.setLogin(rs.getString("login"));
+        }
+        if (fields.includes("name")) {
+            user.setName(rs.getString("name"));
+        }
+        if (fields.includes("birthday")) {
+            user.setBirthday(rs.getObject("birthday", LocalDate.class));
+        }
+        user.setFriends(fields.includes("friends") ? new HashMap<>() : null);
+        return user;
+    }
+
+    private static String userColumns(FieldSet fields) {
+        StringJoiner columns = new StringJoiner(", ");
+        columns.add("id");
+        for (String column : List.of("email", "login", "name", "birthday")) {
+            if (fields.includes(column)) {
+                columns.add(column);
+            }
+        }
+        return columns.toString();
     }
 
     private void loadFriends(User user) {
@@ -114,39 +217,36 @@ public class UserDbStorage implements UserStorage {
     private void loadFriendsForUsers(Map<Integer, User> userMap) {
         if (userMap.isEmpty()) return;
 
-        String inClause = String.join(",", Collections.nCopies(userMap.size(), "?"));
-        String sql = String.format("SELECT user_id, friend_id, status FROM friendships WHERE user_id IN (%s)", inClause);
+        String sql = "SELECT f.user_id, f.friend_id, f.status FROM UNNEST(?) AS ids(id) " +
+                "JOIN friendships f ON f.user_id = ids.id";
 
-        List<Map<String, Object>> friendships = jdbcTemplate.queryForList(
-                sql, userMap.keySet().toArray());
-
-        for (Map<String, Object> row : friendships) {
-            Integer userId = (Integer) row.get("user_id");
-            Integer friendId = (Integer) row.get("friend_id");
-            String status = (String) row.get("status");
-
-            User user = userMap.get(userId);
+        batchLoader.load(sql, userMap.keySet(), rs -> {
+            User user = userMap.get(rs.getInt("user_id"));
             if (user != null) {
-                user.getFriends().put(friendId, FriendshipStatus.valueOf(status));
+                user.getFriends().put(rs.getInt("friend_id"), FriendshipStatus.valueOf(rs.getString("status")));
             }
-        }
+        });
     }
 
+    @Override
     public void addFriend(Integer userId, Integer friendId) {
         String sql = "MERGE INTO friendships (user_id, friend_id, status) KEY(user_id, friend_id) VALUES (?, ?, ?)";
         jdbcTemplate.update(sql, userId, friendId, FriendshipStatus.UNCONFIRMED.name());
     }
 
+    @Override
     public void removeFriend(Integer userId, Integer friendId) {
         String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
         jdbcTemplate.update(sql, userId, friendId);
     }
 
+    @Override
     public void confirmFriend(Integer userId, Integer friendId) {
         String sql = "UPDATE friendships SET status = ? WHERE user_id = ? AND friend_id = ?";
         jdbcTemplate.update(sql, FriendshipStatus.CONFIRMED.name(), userId, friendId);
     }
 
+    @Override
     public List<User> getFriends(Integer userId) {
         String sql = "SELECT u.* FROM users u " +
                 "JOIN friendships f ON u.id = f.friend_id " +
@@ -154,6 +254,7 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, this::mapRowToUser, userId);
     }
 
+    @Override
     public List<User> getCommonFriends(Integer userId, Integer otherId) {
         String sql = "SELECT u.* FROM users u " +
                 "JOIN friendships f1 ON u.id = f1.friend_id " +
@@ -1,8 +1,13 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     User addUser(User user);
@@ -11,5 +16,33 @@ public interface UserStorage {
 
     User getUser(Integer id);
 
+    boolean existsById(Integer id);
+
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
     Collection<User> getAllUsers();
-}
\ No newline at end of file
+
+    /**
+     * Пользователи только с запрошенными полями: хранилище может не читать остальные столбцы и друзей.
+     */
+    Collection<User> getAllUsers(FieldSet fields);
+
+    List<User> getUsersByIds(List<Integer> ids);
+
+    Map<Integer, int[]> getFriendIdsByUser();
+
+    /**
+     * Передаёт всех пользователей с друзьями по одному в порядке id, не держа их в памяти.
+     */
+    void exportUsers(int fetchSize, Consumer<User> consumer);
+
+    void addFriend(Integer userId, Integer friendId);
+
+    void removeFriend(Integer userId, Integer friendId);
+
+    void confirmFriend(Integer userId, Integer friendId);
+
+    List<User> getFriends(Integer userId);
+
+    List<User> getCommonFriends(Integer userId, Integer otherId);
+}
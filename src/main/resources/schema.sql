@@ -17,6 +17,10 @@ CREATE TABLE IF NOT EXISTS films (
     mpa_id INTEGER REFERENCES mpa_ratings(id)
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER;
+
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films (likes_count DESC, id);
+
 CREATE TABLE IF NOT EXISTS film_genres (
     film_id INTEGER REFERENCES films(id) ON DELETE CASCADE,
     genre_id INTEGER REFERENCES genres(id),
@@ -42,4 +46,12 @@ CREATE TABLE IF NOT EXISTS friendships (
     friend_id INTEGER REFERENCES users(id) ON DELETE CASCADE,
     status VARCHAR(20) DEFAULT 'UNCONFIRMED',
     PRIMARY KEY (user_id, friend_id)
-);
\ No newline at end of file
+);
+
+-- Только что добавленный likes_count пуст: заполняем по film_likes, в уже заполненной базе строк с NULL нет
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)
+WHERE likes_count IS NULL;
+
+ALTER TABLE films ALTER COLUMN likes_count SET DEFAULT 0;
+
+ALTER TABLE films ALTER COLUMN likes_count SET NOT NULL;
@@ -10,12 +10,18 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,7 +46,6 @@ class FilmControllerTest {
                 .duration(120)
                 .mpa(MpaRating.builder().id(2).name("PG").build())
                 .genres(new HashSet<>())
-                .likes(new HashSet<>())
                 .build();
 
         mockMvc.perform(post("/films")
@@ -109,4 +114,387 @@ class FilmControllerTest {
                         .content("{}"))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFilmsPage_InvalidLimit_Returns400() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getFilmsPage_AfterWithoutLimit_Returns400() throws Exception {
+        mockMvc.perform(get("/films").param("after", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getFilmsPage_ReturnsFilmsAndCursor() throws Exception {
+        mockMvc.perform(get("/films").param("after", "0").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.films").isArray());
+    }
+
+    @Test
+    void getPopularFilms_LikedFilmFirst() throws Exception {
+        Film film = Film.builder()
+                .name("Popular Film")
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(MpaRating.builder().id(1).name("G").build())
+                .build();
+        String filmJson = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andReturn().getResponse().getContentAsString();
+        Integer filmId = objectMapper.readValue(filmJson, Film.class).getId();
+
+        String userJson = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"popular@test.ru\", \"login\":\"popular\", " +
+                                "\"birthday\":\"2000-01-01\"}"))
+                .andReturn().getResponse().getContentAsString();
+        Integer userId = objectMapper.readValue(userJson, User.class).getId();
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(filmId));
+    }
+
+    @Test
+    void getFilms_FieldsLimitSerializedProperties() throws Exception {
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Film.builder()
+                                .name("Sparse")
+                                .description("Description")
+                                .releaseDate(LocalDate.of(2000, 1, 1))
+                                .duration(90)
+                                .mpa(MpaRating.builder().id(1).build())
+                                .build())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").isNumber())
+                .andExpect(jsonPath("$[0].name").isString())
+                .andExpect(jsonPath("$[0].likesCount").doesNotExist())
+                .andExpect(jsonPath("$[0].duration").doesNotExist());
+        mockMvc.perform(get("/films/popular").param("fields", "likesCount,mpa"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].mpa.name").isString())
+                .andExpect(jsonPath("$[0].likesCount").isNumber())
+                .andExpect(jsonPath("$[0].name").doesNotExist());
+        mockMvc.perform(get("/films"))
+                .andExpect(jsonPath("$[0].likesCount").isNumber())
+                .andExpect(jsonPath("$[0].likes").doesNotExist())
+                .andExpect(jsonPath("$[0].duration").isNumber());
+        mockMvc.perform(get("/films").param("fields", "name,rating"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchFilms_FiltersByGenreMpaAndYearInPopularityOrder() throws Exception {
+        Integer older = createFilm("Search 1931", LocalDate.of(1931, 3, 1), 4, 5);
+        Integer liked = createFilm("Search 1932", LocalDate.of(1932, 3, 1), 4, 3);
+        createFilm("Search other MPA", LocalDate.of(1931, 5, 1), 2, 5);
+        createFilm("Search 1934", LocalDate.of(1934, 3, 1), 4, 5);
+
+        String userJson = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"search@test.ru\", \"login\":\"search\", " +
+                                "\"birthday\":\"2000-01-01\"}"))
+                .andReturn().getResponse().getContentAsString();
+        Integer userId = objectMapper.readValue(userJson, User.class).getId();
+        mockMvc.perform(put("/films/{id}/like/{userId}", liked, userId))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/search?genre=5&genre=3&mpa=4&yearFrom=1930&yearTo=1933")
+                        .param("fields", "name,likesCount"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(liked))
+                .andExpect(jsonPath("$[0].likesCount").value(1))
+                .andExpect(jsonPath("$[1].id").value(older))
+                .andExpect(jsonPath("$[1].releaseDate").doesNotExist());
+        mockMvc.perform(get("/films/search?genre=5&mpa=4&yearFrom=1930&yearTo=1940&sort=date"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Search 1934"))
+                .andExpect(jsonPath("$[1].id").value(older));
+        mockMvc.perform(get("/films/search?yearFrom=1940&yearTo=1930"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search?sort=rating"))
+                .andExpect(status().isBadRequest());
+
+        // Лайк убирается, чтобы не влиять на порядок /films/popular в других тестах
+        mockMvc.perform(delete("/films/{id}/like/{userId}", liked, userId))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void searchFilms_FullTextQueryRankedByRelevance() throws Exception {
+        Integer exact = createFilm("Зеркальный лабиринт", LocalDate.of(1975, 3, 1), 3, 2);
+        Integer prefixed = createFilm("Лабиринтовый кот", LocalDate.of(1975, 3, 1), 3, 1);
+
+        mockMvc.perform(get("/films/search").param("q", "ЛАБИРИНТ"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(exact))
+                .andExpect(jsonPath("$[1].id").value(prefixed));
+        mockMvc.perform(get("/films/search").param("q", "лабиринт").param("genre", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(prefixed));
+        mockMvc.perform(get("/films/search").param("q", "зеркальный лабиринт").param("sort", "date"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(exact));
+        mockMvc.perform(get("/films/search").param("sort", "relevance"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Integer createFilm(String name, LocalDate releaseDate, int mpaId, int genreId) throws Exception {
+        String json = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Film.builder()
+                                .name(name)
+                                .description("Description")
+                                .releaseDate(releaseDate)
+                                .duration(90)
+                                .mpa(MpaRating.builder().id(mpaId).build())
+                                .genres(new HashSet<>(List.of(Genre.builder().id(genreId).build())))
+                                .build())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(json, Film.class).getId();
+    }
+
+    @Test
+    void getPopularFilms_NonPositiveCount_Returns400() throws Exception {
+        mockMvc.perform(get("/films/popular").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+    @Test
+    void importFilms_JsonArray_ReportsPerItemErrors() throws Exception {
+        String body = "[" +
+                "{\"name\":\"Bulk 1\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}," +
+                "\"genres\":[{\"id\":1},{\"id\":2}]}," +
+                "{\"name\":\"\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}," +
+                "{\"name\":\"Bulk 3\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":99}}," +
+                "{\"name\":\"Bulk 4\",\"releaseDate\":\"2001-01-01\",\"duration\":100,\"mpa\":{\"id\":2}}" +
+                "]";
+
+        String response = mockMvc.perform(post("/films/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.ids.length()").value(4))
+                .andExpect(jsonPath("$.ids[1]").isEmpty())
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andReturn().getResponse().getContentAsString();
+
+        int firstId = objectMapper.readTree(response).get("ids").get(0).asInt();
+        mockMvc.perform(get("/films/" + firstId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Bulk 1"))
+                .andExpect(jsonPath("$.genres.length()").value(2));
+    }
+
+    @Test
+    void importFilms_Ndjson_CreatesAllFilms() throws Exception {
+        String body = "{\"name\":\"Line 1\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}\n" +
+                "{\"name\":\"Line 2\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":3}}\n";
+
+        mockMvc.perform(post("/films/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.errors").isEmpty());
+    }
+
+    @Test
+    void getSqlProfile_AttributesStatementsToRoute() throws Exception {
+        mockMvc.perform(delete("/internal/sql"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/films/popular").param("count", "5"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/internal/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.routes[?(@.route == 'GET /films/popular')].requests").value(1))
+                .andExpect(jsonPath("$.statements").isNotEmpty());
+    }
+
+    @Test
+    void getSqlProfile_AttributesStreamingResponseStatementsToRoute() throws Exception {
+        mockMvc.perform(delete("/internal/sql"))
+                .andExpect(status().isNoContent());
+        MvcResult result = mockMvc.perform(get("/films/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/internal/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.routes[?(@.route == 'GET /films/stream')].requests").value(1))
+                .andExpect(jsonPath("$.routes[?(@.route == 'GET /films/stream')].statements",
+                        everyItem(greaterThan(0))));
+    }
+
+    @Test
+    void getMetrics_ReturnsPrometheusText() throws Exception {
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/internal/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                .andExpect(content().string(containsString(
+                        "filmorate_http_request_duration_seconds_count{method=\"GET\",route=\"/films/popular\"}")));
+    }
+
+    @Test
+    void addLikeAsync_Returns202AndOperationIsApplied() throws Exception {
+        Film film = Film.builder()
+                .name("Async Film")
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(MpaRating.builder().id(1).name("G").build())
+                .build();
+        String filmJson = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andReturn().getResponse().getContentAsString();
+        Integer filmId = objectMapper.readValue(filmJson, Film.class).getId();
+
+        String userJson = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"async@test.ru\", \"login\":\"async\", " +
+                                "\"birthday\":\"2000-01-01\"}"))
+                .andReturn().getResponse().getContentAsString();
+        Integer userId = objectMapper.readValue(userJson, User.class).getId();
+
+        String location = mockMvc.perform(put("/films/{id}/like/{userId}/async", filmId, userId))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getHeader("Location");
+        String failedLocation = mockMvc.perform(put("/films/{id}/like/{userId}/async", 999_999, userId))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+
+        assertThat(awaitOperation(location)).isEqualTo("APPLIED");
+        assertThat(awaitOperation(failedLocation)).isEqualTo("FAILED");
+        mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(jsonPath("$.likesCount").value(1))
+                .andExpect(jsonPath("$.likes").doesNotExist());
+        mockMvc.perform(get("/films/{id}/likes", filmId))
+                .andExpect(jsonPath("$.userIds[0]").value(userId))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+        mockMvc.perform(put("/films/{id}/like/{userId}/async", 0, userId))
+                .andExpect(status().isBadRequest());
+
+        String removeLocation = mockMvc.perform(delete("/films/{id}/like/{userId}/async", filmId, userId))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+        assertThat(awaitOperation(removeLocation)).isEqualTo("APPLIED");
+        mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(jsonPath("$.likesCount").value(0));
+        mockMvc.perform(get("/films/{id}/likes", filmId))
+                .andExpect(jsonPath("$.userIds").isEmpty());
+    }
+
+    @Test
+    void getGenres_ConfiguredCacheControlAndEtag() throws Exception {
+        String etag = mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=3600, must-revalidate"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/genres").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/genres/1").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void conditionalGet_UnknownIdReturns404() throws Exception {
+        Integer filmId = createFilm("Conditional Film", LocalDate.of(2000, 1, 1), 1, 1);
+        String filmTag = mockMvc.perform(get("/films/{id}", filmId))
+                .andReturn().getResponse().getHeader("ETag");
+        // Версия у никогда не менявшегося id нулевая, поэтому такой ETag совпал бы и без фильма
+        String epoch = filmTag.substring(filmTag.lastIndexOf('-') + 1, filmTag.length() - 1);
+
+        mockMvc.perform(get("/films/999999").header("If-None-Match", "\"film-999999-0-" + epoch + "\""))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/999999").header("If-None-Match", "\"user-999999-0-" + epoch + "\""))
+                .andExpect(status().isNotFound());
+
+        String genreTag = mockMvc.perform(get("/genres/1"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/genres/999").header("If-None-Match", genreTag.replace("-1-", "-999-")))
+                .andExpect(status().isNotFound());
+        String mpaTag = mockMvc.perform(get("/mpa/1"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/mpa/999").header("If-None-Match", mpaTag.replace("-1-", "-999-")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportFilms_CsvQuotesFieldsAndRejectsUnknownFormat() throws Exception {
+        Film film = Film.builder()
+                .name("Export, \"quoted\"")
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .mpa(MpaRating.builder().id(1).build())
+                .build();
+        String filmJson = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andReturn().getResponse().getContentAsString();
+        Integer filmId = objectMapper.readValue(filmJson, Film.class).getId();
+
+        MvcResult result = mockMvc.perform(get("/films/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", containsString("films.csv")))
+                .andExpect(content().string(containsString(
+                        filmId + ",\"Export, \"\"quoted\"\"\",Description,2000-01-01,90,1,G,,\r\n")));
+
+        MvcResult ndjson = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"id\":" + filmId + ",")))
+                .andExpect(content().string(containsString("\"likes\":[")));
+
+        mockMvc.perform(get("/films/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String awaitOperation(String location) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String response = mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            String operationStatus = objectMapper.readTree(response).get("status").asText();
+            if (!"PENDING".equals(operationStatus)) {
+                return operationStatus;
+            }
+            Thread.sleep(50);
+        }
+        return "PENDING";
+    }
+}
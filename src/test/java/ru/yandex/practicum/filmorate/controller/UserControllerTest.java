@@ -13,8 +13,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -98,4 +104,117 @@ class UserControllerTest {
                         .content("{}"))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCommonFriends_ReturnsIntersection() throws Exception {
+        int user = createUser();
+        int other = createUser();
+        int common = createUser();
+        int onlyUsers = createUser();
+
+        mockMvc.perform(put("/users/" + user + "/friends/" + common)).andExpect(status().isOk());
+        mockMvc.perform(put("/users/" + user + "/friends/" + onlyUsers)).andExpect(status().isOk());
+        mockMvc.perform(put("/users/" + other + "/friends/" + common)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/" + user + "/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(common))
+                .andExpect(jsonPath("$[1].id").value(onlyUsers));
+        mockMvc.perform(get("/users/" + user + "/friends/common/" + other))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(common));
+
+        mockMvc.perform(delete("/users/" + user + "/friends/" + common)).andExpect(status().isOk());
+        mockMvc.perform(get("/users/" + user + "/friends/common/" + other))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void getFriendSuggestions_RanksByMutualFriends() throws Exception {
+        int user = createUser();
+        int friend = createUser();
+        int suggested = createUser();
+
+        mockMvc.perform(put("/users/" + user + "/friends/" + friend)).andExpect(status().isOk());
+        mockMvc.perform(put("/users/" + suggested + "/friends/" + friend)).andExpect(status().isOk());
+        mockMvc.perform(put("/users/" + friend + "/friends/" + user)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/" + user + "/friends/suggestions").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(suggested));
+        mockMvc.perform(get("/users/" + user + "/friends/suggestions").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getUser_IfNoneMatch_Returns304UntilUserChanges() throws Exception {
+        int user = createUser();
+        int friend = createUser();
+
+        String etag = mockMvc.perform(get("/users/" + user))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/users/" + user).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/users/" + user + "/friends/" + friend)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/" + user).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.friends").isNotEmpty());
+    }
+
+    @Test
+    void concurrentAddAndRemoveFriend_GraphMatchesDatabase() throws Exception {
+        int user = createUser();
+        int friend = createUser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                boolean add = i % 2 == 0;
+                tasks.add(executor.submit(() -> mockMvc.perform(add
+                        ? put("/users/" + user + "/friends/" + friend)
+                        : delete("/users/" + user + "/friends/" + friend))));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        String stored = mockMvc.perform(get("/users/" + user))
+                .andReturn().getResponse().getContentAsString();
+        int expected = objectMapper.readTree(stored).get("friends").size();
+        mockMvc.perform(get("/users/" + user + "/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(expected));
+    }
+
+    private int createUser() throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        User user = User.builder()
+                .email("friend" + suffix + "@test.ru")
+                .login("friend" + suffix)
+                .name("Friend")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+
+        String response = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asInt();
+    }
+}
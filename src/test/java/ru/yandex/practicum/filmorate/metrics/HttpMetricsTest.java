@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpMetricsTest {
+    private final HttpMetrics metrics = new HttpMetrics();
+
+    @Test
+    public void testScrapeInPrometheusFormat() {
+        for (int i = 1; i <= 100; i++) {
+            metrics.record("GET", "/films/{id}", i == 100 ? 404 : 200, i * 1_000_000L, 50);
+        }
+        metrics.record("POST", "/films", 500, 3_000_000, -1);
+
+        String scrape = metrics.scrape();
+
+        assertThat(scrape)
+                .contains("# TYPE filmorate_http_request_duration_seconds summary")
+                .contains("filmorate_http_request_duration_seconds_count{method=\"GET\",route=\"/films/{id}\"} 100")
+                .contains("filmorate_http_requests_total{method=\"GET\",route=\"/films/{id}\",status=\"2xx\"} 99")
+                .contains("filmorate_http_requests_total{method=\"GET\",route=\"/films/{id}\",status=\"4xx\"} 1")
+                .contains("filmorate_http_requests_total{method=\"POST\",route=\"/films\",status=\"5xx\"} 1")
+                .contains("filmorate_http_response_size_bytes_sum{method=\"GET\",route=\"/films/{id}\"} 5000")
+                .contains("filmorate_http_response_size_bytes_count{method=\"POST\",route=\"/films\"} 0")
+                .contains("filmorate_http_request_duration_seconds{method=\"GET\",route=\"/films/{id}\","
+                        + "quantile=\"0.999\"} 0.100000000");
+        assertThat(scrape.lines().filter(line -> line.contains("quantile=\"0.5\"") && line.contains("GET"))
+                .findFirst().orElseThrow())
+                .matches(".* 0\\.05[0-3]\\d+");
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertThat(histogram.count()).isEqualTo(100_000);
+        assertThat(histogram.max()).isEqualTo(100_000_000);
+        long[] percentiles = histogram.percentiles(0.5, 0.99, 1.0);
+        assertThat((double) percentiles[0]).isCloseTo(50_000_000, within(50_000_000 * 0.0625));
+        assertThat((double) percentiles[1]).isCloseTo(99_000_000, within(99_000_000 * 0.0625));
+        assertThat(percentiles[2]).isEqualTo(100_000_000);
+    }
+
+    @Test
+    public void testBucketsCoverWholeRange() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 1_000, 123_456_789, 1L << 40, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(value);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(Math.min(value, 1L << 41) - 1);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.percentile(0.0)).isZero();
+        histogram.reset();
+        assertThat(histogram.count()).isZero();
+        assertThat(histogram.percentile(0.99)).isZero();
+    }
+}
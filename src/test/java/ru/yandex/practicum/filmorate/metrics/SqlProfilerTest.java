@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.model.RouteSqlStats;
+import ru.yandex.practicum.filmorate.model.SqlProfile;
+import ru.yandex.practicum.filmorate.model.SqlStatementStats;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlProfilerTest {
+    private final SqlProfiler profiler = new SqlProfiler(true, 3);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new ProfilingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:sql-profiler;DB_CLOSE_DELAY=-1", "sa", ""), profiler));
+
+    @Test
+    public void testStatementsAreNormalizedAndCounted() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS items (id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        jdbcTemplate.update("DELETE FROM items");
+        jdbcTemplate.batchUpdate("INSERT INTO items (id, name) VALUES (?, ?)",
+                List.of(new Object[]{1, "a"}, new Object[]{2, "b"}, new Object[]{3, "c"}));
+        jdbcTemplate.queryForList("SELECT id FROM items WHERE id IN (1, 2, 3)");
+        jdbcTemplate.queryForList("SELECT id FROM items WHERE id IN (1, 2)");
+        jdbcTemplate.queryForList("SELECT id FROM items WHERE name = 'a'");
+
+        SqlProfile profile = profiler.getProfile();
+
+        assertThat(stats(profile, "INSERT INTO items (id, name) VALUES (?, ?)"))
+                .extracting(SqlStatementStats::getCalls, SqlStatementStats::getRows)
+                .containsExactly(1L, 3L);
+        assertThat(stats(profile, "SELECT id FROM items WHERE id IN (?)"))
+                .extracting(SqlStatementStats::getCalls, SqlStatementStats::getRows)
+                .containsExactly(2L, 5L);
+        assertThat(stats(profile, "SELECT id FROM items WHERE name = ?").getRows()).isEqualTo(1);
+        assertThat(profile.getRoutes()).isEmpty();
+    }
+
+    @Test
+    public void testRepeatedStatementInRequestIsReportedAsNPlusOne() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS items (id INTEGER PRIMARY KEY, name VARCHAR(20))");
+
+        profiler.beginRequest();
+        for (int id = 0; id < 5; id++) {
+            jdbcTemplate.queryForList("SELECT name FROM items WHERE id = ?", id);
+        }
+        profiler.endRequest("GET /films");
+
+        profiler.beginRequest();
+        jdbcTemplate.queryForList("SELECT name FROM items WHERE id = ?", 1);
+        profiler.endRequest("GET /films/{id}");
+
+        SqlProfile profile = profiler.getProfile();
+        assertThat(profile.getSuspectedNPlusOne()).hasSize(1);
+        assertThat(profile.getSuspectedNPlusOne().get(0).getRoute()).isEqualTo("GET /films");
+        assertThat(profile.getSuspectedNPlusOne().get(0).getExecutions()).isEqualTo(5);
+        assertThat(profile.getRoutes())
+                .filteredOn(route -> route.getRoute().equals("GET /films"))
+                .singleElement()
+                .extracting(RouteSqlStats::getStatements)
+                .isEqualTo(5L);
+
+        profiler.reset();
+        assertThat(profiler.getProfile().getStatements()).isEmpty();
+    }
+
+    private SqlStatementStats stats(SqlProfile profile, String sql) {
+        return profile.getStatements().stream()
+                .filter(stats -> stats.getSql().equals(sql))
+                .findFirst()
+                .orElseThrow();
+    }
+}
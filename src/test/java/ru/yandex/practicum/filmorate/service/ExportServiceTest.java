@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportServiceTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final ExportService exportService =
+            new ExportService(filmStorage, new InMemoryUserStorage(), new ObjectMapper(), 10);
+
+    @Test
+    public void testCsvRowWithoutMpaKeepsColumnCount() throws Exception {
+        Film film = filmStorage.addFilm(Film.builder()
+                .name("No MPA")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .build());
+        filmStorage.addLike(film.getId(), 7);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.exportFilms(ExportService.Format.CSV, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(lines[1]).isEqualTo(film.getId() + ",No MPA,,2000-01-01,90,,,,7");
+        assertThat(lines[1].split(",", -1)).hasSameSizeAs(lines[0].split(","));
+    }
+}
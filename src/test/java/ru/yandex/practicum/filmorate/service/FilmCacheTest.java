@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Film load(Integer id) {
+        loads.incrementAndGet();
+        return Film.builder().id(id).name("Фильм " + id).build();
+    }
+
+    @Test
+    public void testHitDoesNotCallLoader() {
+        FilmCache cache = new FilmCache(10, 300);
+
+        Film first = cache.get(1, this::load);
+        Film second = cache.get(1, this::load);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.getStats().getHits()).isEqualTo(1);
+        assertThat(cache.getStats().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryEvicted() {
+        FilmCache cache = new FilmCache(2, 300);
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+        cache.get(1, this::load);
+        cache.get(3, this::load);
+
+        cache.get(1, this::load);
+        assertThat(loads.get()).isEqualTo(3);
+        cache.get(2, this::load);
+        assertThat(loads.get()).isEqualTo(4);
+        assertThat(cache.getStats().getEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSampledEvictionKeepsSizeAndRecentlyReadEntry() {
+        FilmCache cache = new FilmCache(1000, 300);
+        for (int id = 1; id <= 5000; id++) {
+            cache.get(1, this::load);
+            cache.get(id, this::load);
+        }
+
+        assertThat(cache.getStats().getSize()).isEqualTo(1000);
+        assertThat(cache.getStats().getEvictions()).isEqualTo(4000);
+        int loadsBefore = loads.get();
+        cache.get(1, this::load);
+        assertThat(loads.get()).isEqualTo(loadsBefore);
+    }
+
+    @Test
+    public void testExpiredEntryReloaded() {
+        FilmCache cache = new FilmCache(10, 0);
+        cache.get(1, this::load);
+        cache.get(1, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.getStats().getExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLikesPatchedWithoutReload() {
+        FilmCache cache = new FilmCache(10, 300);
+        Film original = cache.get(1, this::load);
+
+        cache.likeAdded(1);
+        cache.likeAdded(1);
+        cache.likeRemoved(1);
+
+        assertThat(cache.get(1, this::load).getLikesCount()).isEqualTo(1);
+        assertThat(original.getLikesCount()).isZero();
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLoadRacingWithInvalidationIsNotCached() {
+        FilmCache cache = new FilmCache(10, 300);
+        cache.get(1, id -> {
+            cache.invalidate(id);
+            return load(id);
+        });
+
+        cache.get(1, this::load);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testChangeOfAnotherFilmDoesNotDiscardLoad() {
+        FilmCache cache = new FilmCache(10, 300);
+        cache.get(2, this::load);
+        cache.get(1, id -> {
+            cache.likeAdded(2);
+            cache.invalidate(3);
+            return load(id);
+        });
+
+        cache.get(1, this::load);
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.get(2, this::load).getLikesCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchIndexTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final FilmSearchIndex index = new FilmSearchIndex(filmStorage);
+
+    @Test
+    public void testGenresOrMpaAndYearRange() {
+        int drama1995 = filmStorage.addFilm(film(1995, 3, 2)).getId();
+        int thriller1999 = filmStorage.addFilm(film(1999, 3, 4)).getId();
+        int drama2001 = filmStorage.addFilm(film(2001, 3, 2)).getId();
+        int comedy1990 = filmStorage.addFilm(film(1990, 1, 1, 2)).getId();
+        index.load();
+
+        assertThat(index.search(List.of(2, 4), List.of(3), 1990, 2000).toArray())
+                .containsExactly(drama1995, thriller1999);
+        assertThat(index.search(List.of(2), null, null, 1995).toArray()).containsExactly(drama1995, comedy1990);
+        assertThat(index.search(null, List.of(1, 3), 2001, null).toArray()).containsExactly(drama2001);
+        assertThat(index.search(List.of(6), null, null, null).isEmpty()).isTrue();
+        assertThat(index.search(List.of(), List.of(), null, null)).isNull();
+    }
+
+    @Test
+    public void testUpdatedFilmMovesBetweenFacets() {
+        int filmId = filmStorage.addFilm(film(1995, 3, 2)).getId();
+        index.load();
+
+        index.put(filmId, film(2010, 4, 6));
+
+        assertThat(index.search(List.of(2), null, null, null).isEmpty()).isTrue();
+        assertThat(index.search(null, List.of(3), null, null).isEmpty()).isTrue();
+        assertThat(index.search(List.of(6), List.of(4), 2010, 2010).toArray()).containsExactly(filmId);
+        assertThat(index.search(null, null, 1990, 2000).isEmpty()).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFilmsAddedAfterLoadMergedIntoDateOrder() {
+        int film2000 = filmStorage.addFilm(film(2000, 1)).getId();
+        int film1980 = filmStorage.addFilm(film(1980, 1)).getId();
+        index.load();
+
+        index.put(10, film(1990, 1));
+        index.put(11, film(2020, 1));
+        index.put(12, film(1970, 1));
+
+        assertThat(index.newest(10, filmId -> true)).containsExactly(11, film2000, 10, film1980, 12);
+        assertThat(index.newest(2, filmId -> filmId != 11)).containsExactly(film2000, 10);
+        assertThat(index.search(null, null, 1975, 1995).toArray()).containsExactly(film1980, 10);
+
+        index.put(10, film(2030, 1));
+        assertThat(index.newest(1, filmId -> true)).containsExactly(10);
+    }
+
+    private static Film film(int year, int mpaId, Integer... genreIds) {
+        return Film.builder()
+                .name("Film " + year)
+                .description("Description")
+                .releaseDate(LocalDate.of(year, 6, 1))
+                .duration(100)
+                .mpa(MpaRating.builder().id(mpaId).build())
+                .genres(new HashSet<>(Arrays.stream(genreIds).map(id -> Genre.builder().id(id).build()).toList()))
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmTextIndexTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final FilmTextIndex index = new FilmTextIndex(filmStorage);
+
+    @Test
+    public void testTokenizesRussianAndEnglish() {
+        assertThat(FilmTextIndex.tokenize("Ёжик в тумане (1975), STAR-wars!"))
+                .containsExactly("ежик", "в", "тумане", "1975", "star", "wars");
+        assertThat(FilmTextIndex.tokenize(" ,.- ")).isEmpty();
+    }
+
+    @Test
+    public void testRanksNameMatchesAndRareWordsHigher() {
+        int inName = filmStorage.addFilm(film("Космическая одиссея", "Фильм о путешествии")).getId();
+        int inDescription = filmStorage.addFilm(film("Солярис", "Космическая станция и океан")).getId();
+        int stalker = filmStorage.addFilm(film("Сталкер", "Фильм о зоне")).getId();
+        index.load();
+
+        assertThat(index.mostRelevant("космическая", null, 10)).containsExactly(inName, inDescription);
+        assertThat(index.mostRelevant("фильм зоне", null, 10)).containsExactly(stalker);
+        // При равной частоте выше короткий текст
+        assertThat(index.mostRelevant("фильм", null, 10)).containsExactly(stalker, inName);
+        assertThat(index.mostRelevant("фильм", null, 1)).containsExactly(stalker);
+        assertThat(index.mostRelevant("фильм пингвины", null, 10)).isEmpty();
+        assertThat(index.mostRelevant("?!", null, 10)).isEmpty();
+    }
+
+    @Test
+    public void testPrefixMatchesRankBelowExactWord() {
+        int exact = filmStorage.addFilm(film("Star", "Old film")).getId();
+        int prefixed = filmStorage.addFilm(film("Stardust", "Old film")).getId();
+        filmStorage.addFilm(film("Ёлки", "Новогодняя комедия"));
+        index.load();
+
+        assertThat(index.mostRelevant("star", null, 10)).containsExactly(exact, prefixed);
+        assertThat(index.mostRelevant("елки", null, 10)).hasSize(1);
+        assertThat(index.mostRelevant("sta", null, 10)).containsExactlyInAnyOrder(exact, prefixed);
+        // Короче трёх символов слово ищется только целиком
+        assertThat(index.mostRelevant("st", null, 10)).isEmpty();
+        assertThat(index.matching("stard old").toArray()).containsExactly(prefixed);
+        assertThat(index.mostRelevant("star", RoaringBitmap.bitmapOf(prefixed), 10)).containsExactly(prefixed);
+    }
+
+    @Test
+    public void testUpdatedFilmReplacesOldText() {
+        int filmId = filmStorage.addFilm(film("Brother", "Gangster drama")).getId();
+        index.load();
+
+        index.put(filmId, film("Брат", "Криминальная драма"));
+
+        assertThat(index.mostRelevant("brother", null, 10)).isEmpty();
+        assertThat(index.mostRelevant("брат драма", null, 10)).containsExactly(filmId);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.terms()).isEqualTo(3);
+    }
+
+    private static Film film(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MpaRating.builder().id(1).build())
+                .build();
+    }
+}
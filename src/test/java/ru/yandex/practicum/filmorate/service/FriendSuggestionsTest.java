@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendSuggestionsTest {
+    private final FriendshipGraph graph = new FriendshipGraph();
+
+    @Test
+    public void testRankedByMutualFriendsThenId() {
+        graph.load(Map.of(
+                1, new int[]{2, 3, 4},
+                2, new int[]{8},
+                5, new int[]{2, 3},
+                6, new int[]{2, 3, 4},
+                7, new int[]{4}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, 1000, 1000, 100);
+
+        assertThat(suggestions.suggest(1, 10)).containsExactly(6, 5, 7);
+        assertThat(suggestions.suggest(1, 1)).containsExactly(6);
+        assertThat(suggestions.suggest(8, 10)).isEmpty();
+    }
+
+    @Test
+    public void testMutualCountMatchesCommonFriends() {
+        graph.load(Map.of(
+                1, new int[]{2, 3},
+                2, new int[]{4},
+                3, new int[]{4},
+                4, new int[]{2}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, 1000, 1000, 100);
+
+        // 4 в друзьях у друзей 2 и 3, но общий друг с 1 у него один - 2
+        assertThat(suggestions.suggest(1, 10)).containsExactly(4);
+        assertThat(graph.commonFriends(1, 4)).containsExactly(2);
+    }
+
+    @Test
+    public void testFanoutCapLimitsTraversal() {
+        graph.load(Map.of(
+                1, new int[]{2, 3, 4, 5},
+                10, new int[]{2, 3, 4, 5}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, 2, 1000, 100);
+
+        int[] result = suggestions.suggest(1, 10);
+
+        assertThat(result).containsExactly(10);
+    }
+
+    @Test
+    public void testPrecomputedResultSkipsNewFriends() {
+        graph.load(Map.of(
+                1, new int[]{2, 3},
+                5, new int[]{2, 3},
+                6, new int[]{2}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, 1000, 2, 2);
+        suggestions.precomputeHeavyUsers();
+
+        graph.addFriend(1, 5);
+        graph.addFriend(7, 2);
+        graph.addFriend(7, 3);
+
+        // Хватает заранее посчитанного списка без нового друга
+        assertThat(suggestions.suggest(1, 1)).containsExactly(6);
+        // После отсева друзей список неполон, результат считается заново
+        assertThat(suggestions.suggest(1, 2)).containsExactly(7, 6);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendshipGraphTest {
+    private final FriendshipGraph graph = new FriendshipGraph();
+
+    @Test
+    public void testLoadSortsAdjacency() {
+        graph.load(Map.of(1, new int[]{5, 2, 9}));
+
+        assertThat(graph.friends(1)).containsExactly(2, 5, 9);
+        assertThat(graph.friends(2)).isEmpty();
+        assertThat(graph.followers(5)).containsExactly(1);
+    }
+
+    @Test
+    public void testAddAndRemoveKeepOrderAndIgnoreDuplicates() {
+        graph.addFriend(1, 7);
+        graph.addFriend(1, 3);
+        graph.addFriend(1, 5);
+        graph.addFriend(1, 5);
+        assertThat(graph.friends(1)).containsExactly(3, 5, 7);
+        assertThat(graph.followers(5)).containsExactly(1);
+
+        graph.removeFriend(1, 5);
+        assertThat(graph.followers(5)).isEmpty();
+        graph.removeFriend(1, 42);
+        assertThat(graph.friends(1)).containsExactly(3, 7);
+
+        graph.removeFriend(1, 3);
+        graph.removeFriend(1, 7);
+        assertThat(graph.friends(1)).isEmpty();
+        assertThat(graph.size()).isZero();
+    }
+
+    @Test
+    public void testCommonFriendsIntersection() {
+        graph.load(Map.of(
+                1, new int[]{2, 4, 6, 8, 10},
+                2, new int[]{3, 4, 5, 10, 11}));
+
+        assertThat(graph.commonFriends(1, 2)).containsExactly(4, 10);
+        assertThat(graph.commonFriends(1, 3)).isEmpty();
+    }
+}
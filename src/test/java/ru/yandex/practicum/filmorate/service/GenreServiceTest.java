@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GenreServiceTest {
+    private final CountingGenreStorage storage = new CountingGenreStorage();
+    private final GenreService genreService = new GenreService(storage, new EntityVersions());
+
+    @BeforeEach
+    public void setUp() {
+        storage.genres.add(new Genre(1, "Комедия"));
+        storage.genres.add(new Genre(2, "Драма"));
+        genreService.refresh();
+    }
+
+    @Test
+    public void testLookupsServedFromSnapshot() {
+        assertThat(genreService.getGenreById(2).getName()).isEqualTo("Драма");
+        assertThat(genreService.getAllGenres()).hasSize(2);
+        assertThatThrownBy(() -> genreService.getGenreById(99)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> genreService.getGenreById(null)).isInstanceOf(NotFoundException.class);
+
+        assertThat(storage.calls).isEqualTo(1);
+    }
+
+    @Test
+    public void testRefreshPicksUpNewRows() {
+        storage.genres.add(new Genre(3, "Мультфильм"));
+        assertThatThrownBy(() -> genreService.getGenreById(3)).isInstanceOf(NotFoundException.class);
+
+        genreService.refresh();
+
+        assertThat(genreService.getGenreById(3).getName()).isEqualTo("Мультфильм");
+    }
+
+    private static class CountingGenreStorage implements GenreStorage {
+        private final List<Genre> genres = new ArrayList<>();
+        private int calls;
+
+        @Override
+        public Genre getGenre(Integer id) {
+            calls++;
+            return genres.stream().filter(genre -> genre.getId().equals(id)).findFirst().orElseThrow();
+        }
+
+        @Override
+        public List<Genre> getAllGenres() {
+            calls++;
+            return List.copyOf(genres);
+        }
+    }
+}
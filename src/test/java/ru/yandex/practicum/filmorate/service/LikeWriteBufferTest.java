@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LikeWriteBufferTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final PopularityLeaderboard leaderboard = new PopularityLeaderboard();
+
+    @Test
+    public void testChangesCollapsedPerFilmAndUser() {
+        LikeWriteBuffer buffer = buffer(100);
+        Film film = filmStorage.addFilm(film());
+        leaderboard.load(Map.of(film.getId(), 0));
+
+        CompletableFuture<Void> superseded = buffer.submit(film.getId(), 1, true);
+        buffer.submit(film.getId(), 1, false);
+        buffer.submit(film.getId(), 1, true);
+        buffer.submit(film.getId(), 2, true);
+        buffer.submit(film.getId(), 3, true);
+        buffer.submit(film.getId(), 3, false);
+
+        assertThat(buffer.pendingSize()).isEqualTo(3);
+        assertThat(likedBy(film)).isEmpty();
+
+        assertThat(buffer.flush()).isEqualTo(3);
+        assertThat(superseded).isCompleted();
+        assertThat(likedBy(film)).containsExactly(1, 2);
+        assertThat(leaderboard.top(1)).containsExactly(film.getId());
+        assertThat(buffer.pendingSize()).isZero();
+    }
+
+    @Test
+    public void testFullBufferRejectsNewKeysButAcceptsCollapsedOnes() {
+        LikeWriteBuffer buffer = buffer(2);
+        Film film = filmStorage.addFilm(film());
+
+        buffer.submit(film.getId(), 1, true);
+        buffer.submit(film.getId(), 2, true);
+        buffer.submit(film.getId(), 2, false);
+
+        assertThatThrownBy(() -> buffer.submit(film.getId(), 3, true)).isInstanceOf(OverloadedException.class);
+
+        buffer.flush();
+        buffer.submit(film.getId(), 3, true);
+        assertThat(buffer.pendingSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testShutdownFlushesPendingChanges() throws InterruptedException {
+        LikeWriteBuffer buffer = buffer(100);
+        Film film = filmStorage.addFilm(film());
+        buffer.submit(film.getId(), 1, true);
+
+        buffer.shutdown();
+
+        assertThat(likedBy(film)).containsExactly(1);
+    }
+
+    @Test
+    public void testFailingChangeDroppedWithoutBlockingOthers() {
+        LikeWriteBuffer buffer = buffer(100);
+        Film film = filmStorage.addFilm(film());
+
+        CompletableFuture<Void> first = buffer.submit(film.getId(), 1, true);
+        CompletableFuture<Void> failing = buffer.submit(film.getId() + 1000, 1, true);
+        CompletableFuture<Void> last = buffer.submit(film.getId(), 2, true);
+        assertThat(first).isNotDone();
+
+        assertThat(buffer.flush()).isEqualTo(3);
+        assertThat(first).isCompleted();
+        assertThat(last).isCompleted();
+        assertThat(failing).isCompletedExceptionally();
+        assertThat(likedBy(film)).containsExactly(1, 2);
+        assertThat(buffer.rejectedCount()).isEqualTo(1);
+        assertThat(buffer.pendingSize()).isZero();
+    }
+
+    private List<Integer> likedBy(Film film) {
+        return filmStorage.getLikes(film.getId(), null, 10).getUserIds();
+    }
+
+    private LikeWriteBuffer buffer(int capacity) {
+        return new LikeWriteBuffer(filmStorage, leaderboard, new FilmCache(10, 300), new EntityVersions(),
+                true, capacity, 5, 10);
+    }
+
+    private Film film() {
+        return Film.builder()
+                .name("Film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MpaRating.builder().id(1).build())
+                .build();
+    }
+}
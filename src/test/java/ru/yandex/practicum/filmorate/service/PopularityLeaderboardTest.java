@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityLeaderboardTest {
+    private final PopularityLeaderboard leaderboard = new PopularityLeaderboard();
+
+    @Test
+    public void testTopOrderedByLikesThenId() {
+        leaderboard.load(Map.of(1, 5, 2, 7, 3, 5, 4, 0));
+
+        assertThat(leaderboard.top(3)).containsExactly(2, 1, 3);
+        assertThat(leaderboard.top(10)).containsExactly(2, 1, 3, 4);
+    }
+
+    @Test
+    public void testIncrementAndDecrementMoveFilm() {
+        leaderboard.addFilm(1);
+        leaderboard.addFilm(2);
+
+        leaderboard.increment(2);
+        assertThat(leaderboard.top(2)).containsExactly(2, 1);
+
+        leaderboard.decrement(2);
+        leaderboard.decrement(2);
+        leaderboard.increment(1);
+        assertThat(leaderboard.top(2)).containsExactly(1, 2);
+        assertThat(leaderboard.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8_000; i++) {
+            int filmId = i % 4;
+            executor.execute(() -> leaderboard.increment(filmId));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        leaderboard.increment(3);
+        assertThat(leaderboard.top(4)).containsExactly(3, 0, 1, 2);
+        assertThat(leaderboard.size()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecommendationServiceTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final LikeMatrix likeMatrix = new LikeMatrix(filmStorage);
+    private final RecommendationService recommendations =
+            new RecommendationService(likeMatrix, filmStorage, null, 2, 20);
+
+    @AfterEach
+    public void tearDown() {
+        recommendations.shutdown();
+    }
+
+    @Test
+    public void testFilmsOfSimilarUsersRecommended() {
+        int[] films = new int[6];
+        for (int i = 0; i < films.length; i++) {
+            films[i] = filmStorage.addFilm(film()).getId();
+        }
+        like(1, films[0], films[1], films[2]);
+        like(2, films[0], films[1], films[2], films[3]);
+        like(3, films[0], films[4]);
+        like(4, films[5]);
+        likeMatrix.rebuild();
+
+        assertThat(recommendations.recommend(1, 10)).containsExactly(films[3], films[4]);
+        assertThat(recommendations.recommend(1, 1)).containsExactly(films[3]);
+        assertThat(recommendations.recommend(5, 10)).isEmpty();
+    }
+
+    @Test
+    public void testOnlyNearestNeighboursContribute() {
+        RecommendationService nearestOnly = new RecommendationService(likeMatrix, filmStorage, null, 2, 1);
+        int[] films = new int[4];
+        for (int i = 0; i < films.length; i++) {
+            films[i] = filmStorage.addFilm(film()).getId();
+        }
+        like(1, films[0], films[1]);
+        like(2, films[0], films[1], films[2]);
+        like(3, films[0], films[3]);
+        likeMatrix.rebuild();
+
+        try {
+            assertThat(nearestOnly.recommend(1, 10)).containsExactly(films[2]);
+        } finally {
+            nearestOnly.shutdown();
+        }
+    }
+
+    @Test
+    public void testIncrementalLikesUpdateMatrix() {
+        int first = filmStorage.addFilm(film()).getId();
+        int second = filmStorage.addFilm(film()).getId();
+        likeMatrix.rebuild();
+
+        likeMatrix.like(1, first);
+        likeMatrix.like(2, first);
+        likeMatrix.like(2, second);
+        assertThat(recommendations.recommend(1, 10)).containsExactly(second);
+
+        likeMatrix.unlike(2, first);
+        assertThat(recommendations.recommend(1, 10)).isEmpty();
+        assertThat(likeMatrix.likes(2)).containsExactly(second);
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            filmStorage.addLike(filmId, userId);
+        }
+    }
+
+    private Film film() {
+        return Film.builder()
+                .name("Film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MpaRating.builder().id(1).build())
+                .build();
+    }
+}
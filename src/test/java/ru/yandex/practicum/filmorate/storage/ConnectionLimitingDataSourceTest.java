@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionLimitingDataSourceTest {
+    private final ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:connection-limit;DB_CLOSE_DELAY=-1", "sa", ""), 2, 50);
+
+    @Test
+    public void testConnectionsOverLimitAreRejected() throws Exception {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertThat(dataSource.availablePermits()).isZero();
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(OverloadedException.class);
+
+        first.close();
+        first.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        try (Connection third = dataSource.getConnection()) {
+            assertThat(third.isValid(1)).isTrue();
+        }
+        second.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    public void testOnlyHikariPoolsAreLimitedBySize() {
+        ConnectionLimitPostProcessor postProcessor = new ConnectionLimitPostProcessor(0, 50);
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:connection-limit-pool;DB_CLOSE_DELAY=-1");
+        pool.setMaximumPoolSize(3);
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(pool);
+
+        try {
+            Object limited = postProcessor.postProcessAfterInitialization(pool, "dataSource");
+            assertThat(limited).isInstanceOf(ConnectionLimitingDataSource.class);
+            assertThat(((ConnectionLimitingDataSource) limited).availablePermits()).isEqualTo(3);
+            assertThat(postProcessor.postProcessAfterInitialization(proxy, "dataSource")).isSameAs(proxy);
+        } finally {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@ActiveProfiles("test")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({IdBatchLoader.class})
+class IdBatchLoaderTest {
+    private final IdBatchLoader batchLoader;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testLoadSpansSeveralChunks() {
+        List<Object[]> users = IntStream.rangeClosed(1, IdBatchLoader.MAX_IDS_PER_QUERY + 100)
+                .mapToObj(i -> new Object[]{"user" + i + "@example.com", "user" + i, "2000-01-01"})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, login, birthday) VALUES (?, ?, ?)", users);
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class);
+
+        List<Integer> loaded = new ArrayList<>();
+        batchLoader.load("SELECT u.id FROM UNNEST(?) AS ids(id) JOIN users u ON u.id = ids.id", ids,
+                rs -> loaded.add(rs.getInt("id")));
+
+        assertThat(loaded).hasSize(IdBatchLoader.MAX_IDS_PER_QUERY + 100).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    public void testLoadIgnoresDuplicatesAndEmptyInput() {
+        List<Integer> loaded = new ArrayList<>();
+        batchLoader.load("SELECT g.id FROM UNNEST(?) AS ids(id) JOIN genres g ON g.id = ids.id", List.of(),
+                rs -> loaded.add(rs.getInt("id")));
+        assertThat(loaded).isEmpty();
+
+        batchLoader.load("SELECT g.id FROM UNNEST(?) AS ids(id) JOIN genres g ON g.id = ids.id",
+                List.of(1, 3, 3, 999), rs -> loaded.add(rs.getInt("id")));
+        assertThat(loaded).containsExactlyInAnyOrder(1, 3);
+    }
+}
@@ -6,15 +6,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.model.FieldSet;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmExport;
+import ru.yandex.practicum.filmorate.model.FilmPage;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikePage;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,9 +36,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 @AutoConfigureTestDatabase
 @ActiveProfiles("test")
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmDbStorage.class, GenreDbStorage.class, MpaDbStorage.class})
+@Import({FilmDbStorage.class, UserDbStorage.class, GenreDbStorage.class, MpaDbStorage.class, IdBatchLoader.class})
 class FilmDbStorageTest {
     private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     public void testAddFilm() {
@@ -96,5 +111,253 @@ class FilmDbStorageTest {
         assertThat(films).hasSize(2);
     }
 
+    @Test
+    public void testGetFilmsWithFieldsSkipsUnrequestedData() {
+        Film film = film("Projected");
+        film.setGenres(Set.of(Genre.builder().id(1).build()));
+        film = filmStorage.addFilm(film);
+        User user = userStorage.addUser(user(1));
+        filmStorage.addLike(film.getId(), user.getId());
+
+        FieldSet fields = FieldSet.parse("name,likesCount", Film.FIELDS);
+        Film projected = filmStorage.getAllFilms(fields).iterator().next();
+        Film byId = filmStorage.getFilmsByIds(List.of(film.getId()), fields).get(0);
+
+        for (Film loaded : List.of(projected, byId)) {
+            assertThat(loaded.getId()).isEqualTo(film.getId());
+            assertThat(loaded.getName()).isEqualTo("Projected");
+            assertThat(loaded.getLikesCount()).isEqualTo(1);
+            assertThat(loaded.getDescription()).isNull();
+            assertThat(loaded.getMpa()).isNull();
+            assertThat(loaded.getGenres()).isNull();
+        }
+        assertThat(filmStorage.getAllFilms(FieldSet.ALL).iterator().next().getGenres()).hasSize(1);
+    }
+
+    @Test
+    public void testGetLikesPage() {
+        Film film = filmStorage.addFilm(film("Liked"));
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            userIds.add(userStorage.addUser(user(i)).getId());
+            filmStorage.addLike(film.getId(), userIds.get(i - 1));
+        }
+
+        LikePage firstPage = filmStorage.getLikes(film.getId(), null, 3);
+        assertThat(firstPage.getUserIds()).containsExactlyElementsOf(userIds.subList(0, 3));
+        assertThat(firstPage.getNextCursor()).isEqualTo(userIds.get(2));
+
+        LikePage lastPage = filmStorage.getLikes(film.getId(), firstPage.getNextCursor(), 3);
+        assertThat(lastPage.getUserIds()).containsExactlyElementsOf(userIds.subList(3, 5));
+        assertThat(lastPage.getNextCursor()).isNull();
+
+        Film loaded = filmStorage.getFilm(film.getId());
+        assertThat(loaded.getLikesCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void testGetFilmsPage() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            ids.add(filmStorage.addFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .releaseDate(LocalDate.of(2000, 1, i))
+                    .duration(100 + i)
+                    .mpa(MpaRating.builder().id(1).name("G").build())
+                    .genres(Set.of(Genre.builder().id(1).name("Комедия").build()))
+                    .build()).getId());
+        }
+
+        FilmPage firstPage = filmStorage.getFilmsPage(null, 2);
+        assertThat(firstPage.getFilms()).extracting(Film::getId).containsExactly(ids.get(0), ids.get(1));
+        assertThat(firstPage.getFilms().get(0).getGenres()).hasSize(1);
+        assertThat(firstPage.getNextCursor()).isEqualTo(ids.get(1));
+
+        FilmPage lastPage = filmStorage.getFilmsPage(ids.get(3), 2);
+        assertThat(lastPage.getFilms()).extracting(Film::getId).containsExactly(ids.get(4));
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void testStreamAllFilms() {
+        for (int i = 1; i <= 5; i++) {
+            filmStorage.addFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .releaseDate(LocalDate.of(2000, 1, i))
+                    .duration(100 + i)
+                    .mpa(MpaRating.builder().id(1).name("G").build())
+                    .genres(Set.of(Genre.builder().id(i).build()))
+                    .build());
+        }
+        User user = userStorage.addUser(user(1));
+        filmStorage.addLike(filmStorage.getFilmsPage(null, 1).getFilms().get(0).getId(), user.getId());
+
+        List<Integer> chunkSizes = new ArrayList<>();
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAllFilms(2, chunk -> {
+            chunkSizes.add(chunk.size());
+            streamed.addAll(chunk);
+        });
+
+        assertThat(chunkSizes).containsExactly(2, 2, 1);
+        assertThat(streamed).extracting(Film::getName)
+                .containsExactly("Film 1", "Film 2", "Film 3", "Film 4", "Film 5");
+        assertThat(streamed).extracting(film -> film.getGenres().iterator().next().getId())
+                .containsExactly(1, 2, 3, 4, 5);
+        assertThat(streamed.get(0).getGenres()).extracting(Genre::getName).doesNotContainNull();
+        assertThat(streamed).extracting(Film::getLikesCount).containsExactly(1, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void testExportFilmsMergesGenresAndLikes() {
+        Film first = film("First");
+        first.setGenres(Set.of(Genre.builder().id(2).build(), Genre.builder().id(1).build()));
+        first = filmStorage.addFilm(first);
+        Film plain = filmStorage.addFilm(film("Plain"));
+        Film last = film("Last");
+        last.setGenres(Set.of(Genre.builder().id(6).build()));
+        last = filmStorage.addFilm(last);
+        User user1 = userStorage.addUser(user(1));
+        User user2 = userStorage.addUser(user(2));
+        filmStorage.addLike(first.getId(), user2.getId());
+        filmStorage.addLike(last.getId(), user1.getId());
+        filmStorage.addLike(last.getId(), user2.getId());
+
+        List<FilmExport> rows = new ArrayList<>();
+        filmStorage.exportFilms(1, rows::add);
+        List<Film> exported = rows.stream().map(FilmExport::getFilm).toList();
+
+        assertThat(exported).extracting(Film::getId).containsExactly(first.getId(), plain.getId(), last.getId());
+        assertThat(exported.get(0).getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+        assertThat(exported.get(0).getGenres()).extracting(Genre::getName).doesNotContainNull();
+        assertThat(rows.get(0).getLikes()).containsExactly(user2.getId());
+        assertThat(exported.get(0).getMpa().getName()).isEqualTo("G");
+        assertThat(exported.get(1).getGenres()).isEmpty();
+        assertThat(rows.get(1).getLikes()).isEmpty();
+        assertThat(exported.get(2).getGenres()).extracting(Genre::getId).containsExactly(6);
+        assertThat(rows.get(2).getLikes()).containsExactly(user1.getId(), user2.getId());
+        assertThat(exported.get(2).getLikesCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetPopularFilmsOrderedByLikesCount() {
+        Film first = filmStorage.addFilm(film("First"));
+        Film second = filmStorage.addFilm(film("Second"));
+        User user1 = userStorage.addUser(user(1));
+        User user2 = userStorage.addUser(user(2));
+
+        filmStorage.addLike(second.getId(), user1.getId());
+        filmStorage.addLike(second.getId(), user2.getId());
+        filmStorage.addLike(first.getId(), user1.getId());
+        filmStorage.removeLike(first.getId(), user1.getId());
+        filmStorage.removeLike(first.getId(), user1.getId());
+
+        List<Film> popular = filmStorage.getPopularFilms(2);
+
+        assertThat(popular).extracting(Film::getId).containsExactly(second.getId(), first.getId());
+        assertThat(popular.get(0).getLikesCount()).isEqualTo(2);
+        assertThat(filmStorage.getLikes(second.getId(), null, 10).getUserIds())
+                .containsExactly(user1.getId(), user2.getId());
+        assertThat(likesCount(first.getId())).isZero();
+        assertThat(likesCount(second.getId())).isEqualTo(2);
+    }
+
+    @Test
+    public void testRebuildLikesCounts() {
+        Film film = filmStorage.addFilm(film("Film"));
+        User user = userStorage.addUser(user(1));
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", film.getId(), user.getId());
+
+        assertThat(likesCount(film.getId())).isZero();
+        assertThat(filmStorage.rebuildLikesCounts()).isEqualTo(1);
+        assertThat(likesCount(film.getId())).isEqualTo(1);
+        assertThat(filmStorage.rebuildLikesCounts()).isZero();
+    }
+
+    @Test
+    public void testSchemaBackfillsLikesCountAddedToExistingDatabase() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:likes-count-upgrade;DB_CLOSE_DELAY=-1", "sa", "");
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        schema.setSqlScriptEncoding("UTF-8");
+        schema.execute(dataSource);
+        JdbcTemplate upgraded = new JdbcTemplate(dataSource);
+        // База, созданная до появления likes_count
+        upgraded.execute("DROP INDEX idx_films_likes_count");
+        upgraded.execute("ALTER TABLE films DROP COLUMN likes_count");
+        upgraded.update("INSERT INTO mpa_ratings (id, name) VALUES (1, 'G')");
+        upgraded.update("INSERT INTO films (id, name, release_date, duration, mpa_id) VALUES " +
+                "(1, 'Liked', DATE '2000-01-01', 90, 1), (2, 'Plain', DATE '2000-01-01', 90, 1)");
+        upgraded.update("INSERT INTO users (id, email, login, birthday) VALUES " +
+                "(1, 'a@test.ru', 'a', DATE '2000-01-01'), (2, 'b@test.ru', 'b', DATE '2000-01-01')");
+        upgraded.update("INSERT INTO film_likes (film_id, user_id) VALUES (1, 1), (1, 2)");
+
+        schema.execute(dataSource);
+        assertThat(upgraded.queryForList("SELECT likes_count FROM films ORDER BY id", Integer.class))
+                .containsExactly(2, 0);
+
+        // Повторный запуск схемы счётчики не трогает
+        upgraded.update("UPDATE films SET likes_count = 5 WHERE id = 2");
+        schema.execute(dataSource);
+        assertThat(upgraded.queryForList("SELECT likes_count FROM films ORDER BY id", Integer.class))
+                .containsExactly(2, 5);
+        upgraded.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testApplyLikeChanges() {
+        Film film = filmStorage.addFilm(film("Film"));
+        User user1 = userStorage.addUser(user(1));
+        User user2 = userStorage.addUser(user(2));
+        filmStorage.addLike(film.getId(), user1.getId());
+
+        Map<Integer, Integer> counts = filmStorage.applyLikeChanges(List.of(
+                new LikeChange(film.getId(), user1.getId(), true),
+                new LikeChange(film.getId(), user2.getId(), true)));
+        assertThat(counts).containsEntry(film.getId(), 2);
+
+        counts = filmStorage.applyLikeChanges(List.of(new LikeChange(film.getId(), user1.getId(), false)));
+        assertThat(counts).containsEntry(film.getId(), 1);
+        assertThat(filmStorage.getLikes(film.getId(), null, 10).getUserIds()).containsExactly(user2.getId());
+        assertThat(likesCount(film.getId())).isEqualTo(1);
+
+        counts = filmStorage.applyLikeChanges(List.of(new LikeChange(film.getId(), user1.getId(), false)));
+        assertThat(counts).containsEntry(film.getId(), 1);
+    }
+
+    @Test
+    public void testExistenceChecks() {
+        Film first = filmStorage.addFilm(film("First"));
+        Film second = filmStorage.addFilm(film("Second"));
+
+        assertThat(filmStorage.existsById(first.getId())).isTrue();
+        assertThat(filmStorage.existsById(second.getId() + 1000)).isFalse();
+        assertThat(filmStorage.findExistingIds(List.of(first.getId(), second.getId(), second.getId() + 1000)))
+                .containsExactlyInAnyOrder(first.getId(), second.getId());
+    }
+
+    private Integer likesCount(Integer filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
 
-}
\ No newline at end of file
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(MpaRating.builder().id(1).name("G").build())
+                .build();
+    }
+
+    private User user(int number) {
+        return User.builder()
+                .email("user" + number + "@example.com")
+                .login("user" + number)
+                .name("User " + number)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikePage;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryFilmStorageTest {
+    private static final int THREADS = 16;
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+
+    @Test
+    public void testConcurrentLikesAreNotLost() throws Exception {
+        Film hot = filmStorage.addFilm(film("Hot"));
+        Film other = filmStorage.addFilm(film("Other"));
+        int usersPerThread = 2_000;
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < usersPerThread; i++) {
+                int userId = thread * usersPerThread + i;
+                filmStorage.addLike(hot.getId(), userId);
+                filmStorage.addLike(other.getId(), userId);
+                // Каждый второй лайк к другому фильму сразу снимается
+                if (i % 2 == 0) {
+                    filmStorage.removeLike(other.getId(), userId);
+                }
+            }
+        });
+
+        assertThat(filmStorage.getFilm(hot.getId()).getLikesCount()).isEqualTo(THREADS * usersPerThread);
+        assertThat(filmStorage.getFilm(other.getId()).getLikesCount()).isEqualTo(THREADS * usersPerThread / 2);
+        assertThat(filmStorage.getLikes(other.getId(), null, THREADS * usersPerThread).getUserIds())
+                .hasSize(THREADS * usersPerThread / 2);
+        assertThat(filmStorage.getPopularFilms(1)).extracting(Film::getId).containsExactly(hot.getId());
+        assertThat(filmStorage.getLikesCounts()).containsEntry(hot.getId(), THREADS * usersPerThread);
+    }
+
+    @Test
+    public void testConcurrentAddFilmGeneratesUniqueIds() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < 500; i++) {
+                filmStorage.addFilm(film("Film " + thread + "-" + i));
+            }
+        });
+
+        Set<Integer> ids = filmStorage.getAllFilms().stream().map(Film::getId).collect(Collectors.toSet());
+        assertThat(ids).hasSize(THREADS * 500);
+        assertThat(filmStorage.getFilmsPage(null, 10).getFilms()).extracting(Film::getId)
+                .containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    public void testUpdateKeepsLikesAndUnknownFilmThrows() {
+        Film film = filmStorage.addFilm(film("Film"));
+        filmStorage.addLike(film.getId(), 42);
+
+        Film update = film("Updated");
+        update.setId(film.getId());
+        filmStorage.updateFilm(update);
+
+        assertThat(filmStorage.getFilm(film.getId()).getName()).isEqualTo("Updated");
+        assertThat(filmStorage.getFilm(film.getId()).getLikesCount()).isEqualTo(1);
+        assertThat(filmStorage.getLikes(film.getId(), null, 10).getUserIds()).containsExactly(42);
+        assertThatThrownBy(() -> filmStorage.getFilm(999)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    public void testLikesPagedInUserIdOrder() {
+        Film film = filmStorage.addFilm(film("Paged"));
+        for (int userId : new int[]{70_000, 5, 1_000_000, 42}) {
+            filmStorage.addLike(film.getId(), userId);
+        }
+
+        LikePage firstPage = filmStorage.getLikes(film.getId(), null, 2);
+        assertThat(firstPage.getUserIds()).containsExactly(5, 42);
+        assertThat(firstPage.getNextCursor()).isEqualTo(42);
+        LikePage lastPage = filmStorage.getLikes(film.getId(), 42, 2);
+        assertThat(lastPage.getUserIds()).containsExactly(70_000, 1_000_000);
+        assertThat(lastPage.getNextCursor()).isNull();
+        assertThat(filmStorage.getFilm(film.getId()).getLikesCount()).isEqualTo(4);
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int number = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(number);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(MpaRating.builder().id(1).name("G").build())
+                .build();
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
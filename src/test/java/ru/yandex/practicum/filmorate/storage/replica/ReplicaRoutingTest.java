@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "filmorate.datasource.replica.url=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+        "filmorate.datasource.replica.sync-ms=3600000",
+        "filmorate.datasource.replica.max-lag-ms=0",
+        "filmorate.datasource.replica.max-lag-ms.UserController.getFriends=60000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReplicaSynchronizer synchronizer;
+
+    @Autowired
+    private ReplicaLagTracker lagTracker;
+
+    @Test
+    void readOnlyRequestsUseReplicaWithinLagTolerance() throws Exception {
+        synchronizer.sync();
+        int userId = createUser("replica1");
+        int friendId = createUser("replica2");
+        mockMvc.perform(put("/users/" + userId + "/friends/" + friendId))
+                .andExpect(status().isOk());
+        assertThat(lagTracker.lagMs()).isPositive().isLessThan(60000);
+
+        // getFriends терпит отставание и читает реплику, где пользователей ещё нет
+        mockMvc.perform(get("/users/" + userId + "/friends"))
+                .andExpect(status().isNotFound());
+        // getCommonFriends отставания не терпит и читает основную базу
+        mockMvc.perform(get("/users/" + userId + "/friends/common/" + friendId))
+                .andExpect(status().isOk());
+
+        synchronizer.sync();
+        assertThat(lagTracker.lagMs()).isZero();
+        mockMvc.perform(get("/users/" + userId + "/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(friendId));
+    }
+
+    @Test
+    void readTrafficDoesNotKeepReplicaStale() throws Exception {
+        int userId = createUser("replica3");
+        int friendId = createUser("replica4");
+        mockMvc.perform(put("/users/" + userId + "/friends/" + friendId))
+                .andExpect(status().isOk());
+        // Отставание не нулевое: read-only запрос уходит в основную базу
+        mockMvc.perform(get("/users/" + userId + "/friends/common/" + friendId))
+                .andExpect(status().isOk());
+
+        synchronizer.sync();
+        long version = lagTracker.writeVersion();
+        assertThat(lagTracker.lagMs()).isZero();
+
+        mockMvc.perform(get("/users/" + userId))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/" + userId + "/friends/common/" + friendId))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(status().isOk());
+        // Выгрузка включает ленивое выполнение запросов командой SET на основной базе
+        MvcResult export = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk());
+
+        assertThat(lagTracker.writeVersion()).isEqualTo(version);
+        assertThat(lagTracker.lagMs()).isZero();
+    }
+
+    @Test
+    void noETagWhileLagTolerantHandlerMayReadStaleReplica() throws Exception {
+        synchronizer.sync();
+        int userId = createUser("replica5");
+        int friendId = createUser("replica6");
+        synchronizer.sync();
+        mockMvc.perform(put("/users/" + userId + "/friends/" + friendId))
+                .andExpect(status().isOk());
+
+        // Реплика отстаёт: getFriends может её читать и не должен закрепить старые данные за новым ETag
+        mockMvc.perform(get("/users/" + userId + "/friends"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+        // getCommonFriends идёт в основную базу и ETag получает
+        mockMvc.perform(get("/users/" + userId + "/friends/common/" + friendId))
+                .andExpect(header().exists("ETag"));
+
+        synchronizer.sync();
+        mockMvc.perform(get("/users/" + userId + "/friends"))
+                .andExpect(jsonPath("$[0].id").value(friendId))
+                .andExpect(header().exists("ETag"));
+    }
+
+    private int createUser(String login) throws Exception {
+        String body = "{\"email\":\"" + login + "@test.ru\",\"login\":\"" + login + "\",\"name\":\"Name\"," +
+                "\"birthday\":\"2000-01-01\"}";
+        String response = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asInt();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryUserStorageTest {
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    public void testConcurrentAddFriendIsNotLost() throws InterruptedException {
+        User user = userStorage.addUser(user(0));
+        for (int i = 1; i <= 1_000; i++) {
+            userStorage.addUser(user(i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int friendId = 2; friendId <= 1_001; friendId++) {
+            int id = friendId;
+            executor.execute(() -> userStorage.addFriend(user.getId(), id));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(userStorage.getFriends(user.getId())).hasSize(1_000);
+    }
+
+    @Test
+    public void testFriendsParityWithDbStorage() {
+        User user1 = userStorage.addUser(user(1));
+        User user2 = userStorage.addUser(user(2));
+        User common = userStorage.addUser(user(3));
+
+        userStorage.addFriend(user1.getId(), common.getId());
+        userStorage.addFriend(user2.getId(), common.getId());
+        userStorage.addFriend(user1.getId(), user2.getId());
+        userStorage.confirmFriend(user1.getId(), user2.getId());
+
+        assertThat(userStorage.getCommonFriends(user1.getId(), user2.getId()))
+                .extracting(User::getId).containsExactly(common.getId());
+        assertThat(userStorage.getUser(user1.getId()).getFriends())
+                .containsEntry(user2.getId(), FriendshipStatus.CONFIRMED)
+                .containsEntry(common.getId(), FriendshipStatus.UNCONFIRMED);
+
+        userStorage.removeFriend(user1.getId(), common.getId());
+        assertThat(userStorage.getFriends(user1.getId())).extracting(User::getId).containsExactly(user2.getId());
+    }
+
+    private User user(int number) {
+        return User.builder()
+                .email("user" + number + "@example.com")
+                .login("user" + number)
+                .name("User " + number)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
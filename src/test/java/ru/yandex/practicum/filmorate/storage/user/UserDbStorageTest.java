@@ -7,9 +7,13 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.model.FieldSet;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,7 +22,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 @AutoConfigureTestDatabase
 @ActiveProfiles("test")
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserDbStorage.class})
+@Import({UserDbStorage.class, IdBatchLoader.class})
 class UserDbStorageTest {
     private final UserDbStorage userStorage;
 
@@ -83,6 +87,28 @@ class UserDbStorageTest {
         assertThat(users).hasSize(2);
     }
 
+    @Test
+    public void testGetAllUsersWithFieldsSkipsFriends() {
+        User user = userStorage.addUser(User.builder()
+                .email("fields@example.com")
+                .login("fieldsLogin")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        User friend = userStorage.addUser(User.builder()
+                .email("friend@example.com")
+                .login("friendLogin")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        userStorage.addFriend(user.getId(), friend.getId());
+
+        List<User> users = (List<User>) userStorage.getAllUsers(FieldSet.parse("login", User.FIELDS));
+
+        assertThat(users).extracting(User::getLogin).containsExactly("fieldsLogin", "friendLogin");
+        assertThat(users).extracting(User::getEmail).containsOnlyNulls();
+        assertThat(users).extracting(User::getFriends).containsOnlyNulls();
+        assertThat(((List<User>) userStorage.getAllUsers()).get(0).getFriends()).containsKey(friend.getId());
+    }
+
     @Test
     public void testUpdateUser() {
         User testUser = User.builder()
@@ -138,4 +164,46 @@ class UserDbStorageTest {
         assertThat(friends).hasSize(1);
         assertThat(friends.get(0).getId()).isEqualTo(addedUser2.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExistenceChecks() {
+        User user = userStorage.addUser(User.builder()
+                .email("exists@example.com")
+                .login("existsLogin")
+                .name("Exists")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        assertThat(userStorage.existsById(user.getId())).isTrue();
+        assertThat(userStorage.existsById(user.getId() + 1000)).isFalse();
+        assertThat(userStorage.findExistingIds(List.of(user.getId(), user.getId() + 1000, user.getId())))
+                .containsExactly(user.getId());
+    }
+
+    @Test
+    public void testExportUsersWithFriends() {
+        List<User> added = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            added.add(userStorage.addUser(User.builder()
+                    .email("export" + i + "@example.com")
+                    .login("export" + i)
+                    .name("Export " + i)
+                    .birthday(LocalDate.of(1990, 1, i))
+                    .build()));
+        }
+        userStorage.addFriend(added.get(0).getId(), added.get(2).getId());
+        userStorage.addFriend(added.get(0).getId(), added.get(1).getId());
+        userStorage.confirmFriend(added.get(0).getId(), added.get(1).getId());
+        userStorage.addFriend(added.get(2).getId(), added.get(0).getId());
+
+        List<User> exported = new ArrayList<>();
+        userStorage.exportUsers(2, exported::add);
+
+        assertThat(exported).extracting(User::getId)
+                .containsExactlyElementsOf(added.stream().map(User::getId).toList());
+        assertThat(exported.get(0).getFriends().keySet()).containsExactly(added.get(1).getId(), added.get(2).getId());
+        assertThat(exported.get(0).getFriends().get(added.get(1).getId())).isEqualTo(FriendshipStatus.CONFIRMED);
+        assertThat(exported.get(1).getFriends()).isEmpty();
+        assertThat(exported.get(2).getFriends().keySet()).containsExactly(added.get(0).getId());
+    }
+}